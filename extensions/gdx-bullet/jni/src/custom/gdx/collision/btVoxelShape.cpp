@@ -0,0 +1,140 @@
+#include "btVoxelShape.h"
+#include "../../../bullet/BulletCollision/CollisionShapes/btTriangleCallback.h"
+
+btVoxelShape::btVoxelShape(int width, int height, int depth, const unsigned char* cells, btScalar cellSize)
+	: m_cells(cells), m_width(width), m_height(height), m_depth(depth), m_localScaling(cellSize, cellSize, cellSize)
+{
+	m_shapeType = CUSTOM_CONCAVE_SHAPE_TYPE;
+	updateBounds();
+}
+
+btVoxelShape::~btVoxelShape()
+{
+}
+
+void btVoxelShape::updateBounds()
+{
+	m_minCell[0] = m_minCell[1] = m_minCell[2] = 0;
+	m_maxCell[0] = m_maxCell[1] = m_maxCell[2] = -1;
+	bool empty = true;
+	for (int y = 0; y < m_height; y++)
+		for (int z = 0; z < m_depth; z++)
+			for (int x = 0; x < m_width; x++)
+			{
+				if (!isOccupiedUnchecked(x, y, z)) continue;
+				if (empty)
+				{
+					m_minCell[0] = m_maxCell[0] = x;
+					m_minCell[1] = m_maxCell[1] = y;
+					m_minCell[2] = m_maxCell[2] = z;
+					empty = false;
+					continue;
+				}
+				m_minCell[0] = btMin(m_minCell[0], x);
+				m_minCell[1] = btMin(m_minCell[1], y);
+				m_minCell[2] = btMin(m_minCell[2], z);
+				m_maxCell[0] = btMax(m_maxCell[0], x);
+				m_maxCell[1] = btMax(m_maxCell[1], y);
+				m_maxCell[2] = btMax(m_maxCell[2], z);
+			}
+}
+
+void btVoxelShape::getAabb(const btTransform& t, btVector3& aabbMin, btVector3& aabbMax) const
+{
+	btVector3 localMin(m_minCell[0], m_minCell[1], m_minCell[2]);
+	btVector3 localMax(m_maxCell[0] + 1, m_maxCell[1] + 1, m_maxCell[2] + 1);
+	if (m_maxCell[0] < m_minCell[0]) localMax = localMin;
+	localMin *= m_localScaling;
+	localMax *= m_localScaling;
+
+	btVector3 localHalfExtents = btScalar(0.5) * (localMax - localMin);
+	localHalfExtents += btVector3(getMargin(), getMargin(), getMargin());
+	btVector3 localCenter = btScalar(0.5) * (localMax + localMin);
+
+	btMatrix3x3 abs_b = t.getBasis().absolute();
+	btVector3 center = t(localCenter);
+	btVector3 extent = localHalfExtents.dot3(abs_b[0], abs_b[1], abs_b[2]);
+	aabbMin = center - extent;
+	aabbMax = center + extent;
+}
+
+void btVoxelShape::processAllTriangles(btTriangleCallback* callback, const btVector3& aabbMin, const btVector3& aabbMax) const
+{
+	if (m_maxCell[0] < m_minCell[0]) return;
+	int from[3], to[3];
+	for (int axis = 0; axis < 3; axis++)
+	{
+		// clamped before the cast, the query boxes of infinite or huge shapes reach +-BT_LARGE_FLOAT which doesn't fit an int
+		const btScalar lo = floor(aabbMin[axis] / m_localScaling[axis]), hi = floor(aabbMax[axis] / m_localScaling[axis]);
+		if (!(lo <= btScalar(m_maxCell[axis])) || !(hi >= btScalar(m_minCell[axis])) || lo > hi) return;
+		from[axis] = lo > btScalar(m_minCell[axis]) ? (int)lo : m_minCell[axis];
+		to[axis] = hi < btScalar(m_maxCell[axis]) ? (int)hi : m_maxCell[axis];
+	}
+
+	const btScalar sx = m_localScaling.x(), sy = m_localScaling.y(), sz = m_localScaling.z();
+	btVector3 triangle[3];
+	for (int y = from[1]; y <= to[1]; y++)
+		for (int z = from[2]; z <= to[2]; z++)
+			for (int x = from[0]; x <= to[0]; x++)
+			{
+				if (!isOccupiedUnchecked(x, y, z)) continue;
+				const int cell = x + z * m_width + y * m_width * m_depth;
+				const btScalar x0 = x * sx, x1 = (x + 1) * sx;
+				const btScalar y0 = y * sy, y1 = (y + 1) * sy;
+				const btScalar z0 = z * sz, z1 = (z + 1) * sz;
+				// corners of each face in counter clockwise order seen from outside, faces numbered top, bottom, left, right,
+				// front (-z), back (+z)
+				for (int face = 0; face < 6; face++)
+				{
+					btVector3 a, b, c, d;
+					switch (face)
+					{
+					case 0:
+						if (!isEmpty(x, y + 1, z)) continue;
+						a.setValue(x0, y1, z0); b.setValue(x0, y1, z1); c.setValue(x1, y1, z1); d.setValue(x1, y1, z0);
+						break;
+					case 1:
+						if (!isEmpty(x, y - 1, z)) continue;
+						a.setValue(x0, y0, z0); b.setValue(x1, y0, z0); c.setValue(x1, y0, z1); d.setValue(x0, y0, z1);
+						break;
+					case 2:
+						if (!isEmpty(x - 1, y, z)) continue;
+						a.setValue(x0, y0, z0); b.setValue(x0, y0, z1); c.setValue(x0, y1, z1); d.setValue(x0, y1, z0);
+						break;
+					case 3:
+						if (!isEmpty(x + 1, y, z)) continue;
+						a.setValue(x1, y0, z0); b.setValue(x1, y1, z0); c.setValue(x1, y1, z1); d.setValue(x1, y0, z1);
+						break;
+					case 4:
+						if (!isEmpty(x, y, z - 1)) continue;
+						a.setValue(x0, y0, z0); b.setValue(x0, y1, z0); c.setValue(x1, y1, z0); d.setValue(x1, y0, z0);
+						break;
+					default:
+						if (!isEmpty(x, y, z + 1)) continue;
+						a.setValue(x0, y0, z1); b.setValue(x1, y0, z1); c.setValue(x1, y1, z1); d.setValue(x0, y1, z1);
+						break;
+					}
+					triangle[0] = a; triangle[1] = b; triangle[2] = c;
+					callback->processTriangle(triangle, cell, face * 2);
+					triangle[0] = a; triangle[1] = c; triangle[2] = d;
+					callback->processTriangle(triangle, cell, face * 2 + 1);
+				}
+			}
+}
+
+void btVoxelShape::calculateLocalInertia(btScalar mass, btVector3& inertia) const
+{
+	(void)mass;
+	// the shape is meant for static objects only
+	inertia.setValue(btScalar(0.), btScalar(0.), btScalar(0.));
+}
+
+void btVoxelShape::setLocalScaling(const btVector3& scaling)
+{
+	m_localScaling = scaling;
+}
+
+const btVector3& btVoxelShape::getLocalScaling() const
+{
+	return m_localScaling;
+}
@@ -0,0 +1,68 @@
+#ifndef btVoxelShape_H
+#define btVoxelShape_H
+
+#include "../../../bullet/BulletCollision/CollisionShapes/btConcaveShape.h"
+
+/** Static shape of a grid of equally sized cells, for example a chunk of voxels. Occupancy is read from a bitset owned by the
+ * caller, cell (x, y, z) is bit (i & 7) of byte (i >> 3) with i = x + z * width + y * width * depth. During narrowphase only the
+ * occupied cells overlapping the queried bounds are visited, each contributes two triangles per face that borders an empty
+ * cell or the edge of the grid. Editing the bitset needs no native objects to be created, call updateBounds() and update the
+ * collision object's AABB when the extent of the occupied cells may have changed. */
+class btVoxelShape : public btConcaveShape
+{
+protected:
+	const unsigned char* m_cells;
+	int m_width;
+	int m_height;
+	int m_depth;
+	int m_minCell[3];
+	int m_maxCell[3];
+	btVector3 m_localScaling;
+
+	bool isOccupiedUnchecked(int x, int y, int z) const
+	{
+		int i = x + z * m_width + y * m_width * m_depth;
+		return (m_cells[i >> 3] & (1 << (i & 7))) != 0;
+	}
+
+	bool isEmpty(int x, int y, int z) const
+	{
+		if (x < 0 || y < 0 || z < 0 || x >= m_width || y >= m_height || z >= m_depth) return true;
+		return !isOccupiedUnchecked(x, y, z);
+	}
+
+public:
+	/** @param cells a bitset of at least (width * height * depth + 7) / 8 bytes, which must outlive the shape
+	 * @param cellSize the size of a cell, the grid spans from the origin to (width, height, depth) * cellSize */
+	btVoxelShape(int width, int height, int depth, const unsigned char* cells, btScalar cellSize);
+
+	virtual ~btVoxelShape();
+
+	/** Recomputes the bounds of the occupied cells, which are used for the shape's AABB. */
+	void updateBounds();
+
+	bool isOccupied(int x, int y, int z) const
+	{
+		return !isEmpty(x, y, z);
+	}
+
+	int getWidth() const { return m_width; }
+
+	int getHeight() const { return m_height; }
+
+	int getDepth() const { return m_depth; }
+
+	virtual void getAabb(const btTransform& t, btVector3& aabbMin, btVector3& aabbMax) const;
+
+	virtual void processAllTriangles(btTriangleCallback* callback, const btVector3& aabbMin, const btVector3& aabbMax) const;
+
+	virtual void calculateLocalInertia(btScalar mass, btVector3& inertia) const;
+
+	virtual void setLocalScaling(const btVector3& scaling);
+
+	virtual const btVector3& getLocalScaling() const;
+
+	virtual const char* getName() const { return "VOXEL"; }
+};
+
+#endif // btVoxelShape_H
@@ -2018,6 +2018,20 @@ public class CollisionJNI {
 	public final static native long new_btHeightfieldTerrainShape__SWIG_1 (int jarg1, int jarg2, java.nio.ShortBuffer jarg3,
 		float jarg4, float jarg5, float jarg6, int jarg7, boolean jarg8);
 
+	public final static native long new_btVoxelShape (int jarg1, int jarg2, int jarg3, java.nio.ByteBuffer jarg4, float jarg5);
+
+	public final static native void delete_btVoxelShape (long jarg1);
+
+	public final static native void btVoxelShape_updateBounds (long jarg1, btVoxelShape jarg1_);
+
+	public final static native boolean btVoxelShape_isOccupied (long jarg1, btVoxelShape jarg1_, int jarg2, int jarg3, int jarg4);
+
+	public final static native int btVoxelShape_getWidth (long jarg1, btVoxelShape jarg1_);
+
+	public final static native int btVoxelShape_getHeight (long jarg1, btVoxelShape jarg1_);
+
+	public final static native int btVoxelShape_getDepth (long jarg1, btVoxelShape jarg1_);
+
 	public final static native long btTriangleMeshShape_operatorNew__SWIG_0 (long jarg1, btTriangleMeshShape jarg1_, long jarg2);
 
 	public final static native void btTriangleMeshShape_operatorDelete__SWIG_0 (long jarg1, btTriangleMeshShape jarg1_,
@@ -9427,6 +9441,8 @@ public class CollisionJNI {
 
 	public final static native long btHeightfieldTerrainShape_SWIGUpcast (long jarg1);
 
+	public final static native long btVoxelShape_SWIGUpcast (long jarg1);
+
 	public final static native long btTriangleMeshShape_SWIGUpcast (long jarg1);
 
 	public final static native long btBvhTriangleMeshShape_SWIGUpcast (long jarg1);
@@ -0,0 +1,84 @@
+/* ----------------------------------------------------------------------------
+ * This file was automatically generated by SWIG (http://www.swig.org).
+ * Version 3.0.11
+ *
+ * Do not make changes to this file unless you know what you are doing--modify
+ * the SWIG interface file instead.
+ * ----------------------------------------------------------------------------- */
+
+package com.badlogic.gdx.physics.bullet.collision;
+
+import com.badlogic.gdx.physics.bullet.linearmath.*;
+
+public class btVoxelShape extends btConcaveShape {
+	private long swigCPtr;
+
+	protected btVoxelShape (final String className, long cPtr, boolean cMemoryOwn) {
+		super(className, CollisionJNI.btVoxelShape_SWIGUpcast(cPtr), cMemoryOwn);
+		swigCPtr = cPtr;
+	}
+
+	/** Construct a new btVoxelShape, normally you should not need this constructor it's intended for low-level usage. */
+	public btVoxelShape (long cPtr, boolean cMemoryOwn) {
+		this("btVoxelShape", cPtr, cMemoryOwn);
+		construct();
+	}
+
+	@Override
+	protected void reset (long cPtr, boolean cMemoryOwn) {
+		if (!destroyed) destroy();
+		super.reset(CollisionJNI.btVoxelShape_SWIGUpcast(swigCPtr = cPtr), cMemoryOwn);
+	}
+
+	public static long getCPtr (btVoxelShape obj) {
+		return (obj == null) ? 0 : obj.swigCPtr;
+	}
+
+	@Override
+	protected void finalize () throws Throwable {
+		if (!destroyed) destroy();
+		super.finalize();
+	}
+
+	@Override
+	protected synchronized void delete () {
+		if (swigCPtr != 0) {
+			if (swigCMemOwn) {
+				swigCMemOwn = false;
+				CollisionJNI.delete_btVoxelShape(swigCPtr);
+			}
+			swigCPtr = 0;
+		}
+		super.delete();
+	}
+
+	static private long SwigConstructbtVoxelShape (int width, int height, int depth, java.nio.ByteBuffer cells, float cellSize) {
+		assert cells.isDirect() : "Buffer must be allocated direct.";
+		return CollisionJNI.new_btVoxelShape(width, height, depth, cells, cellSize);
+	}
+
+	public btVoxelShape (int width, int height, int depth, java.nio.ByteBuffer cells, float cellSize) {
+		this(btVoxelShape.SwigConstructbtVoxelShape(width, height, depth, cells, cellSize), true);
+	}
+
+	public void updateBounds () {
+		CollisionJNI.btVoxelShape_updateBounds(swigCPtr, this);
+	}
+
+	public boolean isOccupied (int x, int y, int z) {
+		return CollisionJNI.btVoxelShape_isOccupied(swigCPtr, this, x, y, z);
+	}
+
+	public int getWidth () {
+		return CollisionJNI.btVoxelShape_getWidth(swigCPtr, this);
+	}
+
+	public int getHeight () {
+		return CollisionJNI.btVoxelShape_getHeight(swigCPtr, this);
+	}
+
+	public int getDepth () {
+		return CollisionJNI.btVoxelShape_getDepth(swigCPtr, this);
+	}
+
+}
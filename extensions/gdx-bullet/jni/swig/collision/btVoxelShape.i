@@ -0,0 +1,5 @@
+%{
+#include <gdx/collision/btVoxelShape.h>
+%}
+
+%include "gdx/collision/btVoxelShape.h"
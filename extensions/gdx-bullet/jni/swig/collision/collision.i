@@ -163,6 +163,8 @@ CREATE_POOLED_OBJECT(btBroadphasePair, com/badlogic/gdx/physics/bullet/collision
 
 %include "./btHeightfieldTerrainShape.i"
 
+%include "./btVoxelShape.i"
+
 %rename(getMeshInterfaceConst) btTriangleMeshShape::getMeshInterface() const;
 %{
 #include <BulletCollision/CollisionShapes/btTriangleMeshShape.h>
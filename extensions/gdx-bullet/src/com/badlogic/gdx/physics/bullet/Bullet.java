@@ -24,8 +24,11 @@ import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.physics.bullet.collision.btBvhTriangleMeshShape;
 import com.badlogic.gdx.physics.bullet.collision.btCollisionShape;
 import com.badlogic.gdx.physics.bullet.collision.btCompoundShape;
+import com.badlogic.gdx.physics.bullet.dynamics.btConstraintSolverPoolMt;
+import com.badlogic.gdx.physics.bullet.dynamics.btDiscreteDynamicsWorldMt;
 import com.badlogic.gdx.physics.bullet.linearmath.LinearMath;
 import com.badlogic.gdx.physics.bullet.linearmath.LinearMathConstants;
+import com.badlogic.gdx.physics.bullet.linearmath.btITaskScheduler;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.Pool;
@@ -66,6 +69,29 @@ public class Bullet {
 			"Bullet binaries version (" + version + ") does not match source version (" + VERSION + ")");
 	}
 
+	/** The released natives have no threaded scheduler, Linux x64 natives built with {@code -PbulletOpenMP} have the OpenMP one.
+	 * @return the threaded task scheduler the natives were built with (OpenMP, TBB or PPL), or null if there is none and the
+	 *         multithreaded classes run sequentially. */
+	public static btITaskScheduler getThreadedTaskScheduler () {
+		btITaskScheduler scheduler = LinearMath.btGetOpenMPTaskScheduler();
+		if (scheduler == null) scheduler = LinearMath.btGetTBBTaskScheduler();
+		if (scheduler == null) scheduler = LinearMath.btGetPPLTaskScheduler();
+		return scheduler;
+	}
+
+	/** Sets the task scheduler used by the multithreaded classes, like {@link btDiscreteDynamicsWorldMt} and
+	 * {@link btConstraintSolverPoolMt}. Must be called before such a world is created. Uses the
+	 * {@link #getThreadedTaskScheduler() threaded scheduler} if available, the sequential scheduler otherwise.
+	 * @param numThreads the number of threads to use, clamped to the maximum of the scheduler
+	 * @return the scheduler that is used, its {@link btITaskScheduler#getNumThreads()} is the actual number of threads */
+	public static btITaskScheduler setTaskScheduler (int numThreads) {
+		btITaskScheduler scheduler = getThreadedTaskScheduler();
+		if (scheduler == null) scheduler = LinearMath.btGetSequentialTaskScheduler();
+		scheduler.setNumThreads(Math.max(1, Math.min(numThreads, scheduler.getMaxNumThreads())));
+		LinearMath.btSetTaskScheduler(scheduler);
+		return scheduler;
+	}
+
 	protected static class ShapePart {
 		public Array<MeshPart> parts = new Array<MeshPart>();
 		public Matrix4 transform = new Matrix4();
@@ -18,6 +18,7 @@ package com.badlogic.gdx.graphics;
 
 import java.nio.Buffer;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 import java.util.HashMap;
 import java.util.Map;
@@ -31,6 +32,7 @@ import com.badlogic.gdx.graphics.glutils.IndexBufferObjectSubData;
 import com.badlogic.gdx.graphics.glutils.IndexData;
 import com.badlogic.gdx.graphics.glutils.InstanceBufferObject;
 import com.badlogic.gdx.graphics.glutils.InstanceData;
+import com.badlogic.gdx.graphics.glutils.IntIndexData;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.graphics.glutils.VertexArray;
 import com.badlogic.gdx.graphics.glutils.VertexBufferObject;
@@ -122,6 +124,22 @@ public class Mesh implements Disposable {
 		addManagedMesh(Gdx.app, this);
 	}
 
+	/** Creates a new Mesh with the given attributes.
+	 *
+	 * @param isStatic whether this mesh is static or not. Allows for internal optimizations.
+	 * @param maxVertices the maximum number of vertices this mesh can hold
+	 * @param maxIndices the maximum number of indices this mesh can hold
+	 * @param use32BitIndices whether the indices are {@link GL20#GL_UNSIGNED_INT}, see {@link #needs32BitIndices(int)}
+	 * @param attributes the {@link VertexAttributes}. Each vertex attribute defines one property of a vertex such as position,
+	 *           normal or texture coordinate */
+	public Mesh (boolean isStatic, int maxVertices, int maxIndices, boolean use32BitIndices, VertexAttributes attributes) {
+		vertices = makeVertexBuffer(isStatic, maxVertices, attributes);
+		indices = new IndexBufferObject(isStatic, maxIndices, use32BitIndices);
+		isVertexArray = false;
+
+		addManagedMesh(Gdx.app, this);
+	}
+
 	/** Creates a new Mesh with the given attributes. Adds extra optimizations for dynamic (frequently modified) meshes.
 	 *
 	 * @param staticVertices whether vertices of this mesh are static or not. Allows for internal optimizations.
@@ -168,26 +186,42 @@ public class Mesh implements Disposable {
 	 * @param maxIndices the maximum number of indices this mesh can hold
 	 * @param attributes the {@link VertexAttributes}. */
 	public Mesh (VertexDataType type, boolean isStatic, int maxVertices, int maxIndices, VertexAttributes attributes) {
+		this(type, isStatic, maxVertices, maxIndices, false, attributes);
+	}
+
+	/** Creates a new Mesh with the given attributes. This is an expert method with no error checking. Use at your own risk.
+	 *
+	 * @param type the {@link VertexDataType} to be used, VBO or VA.
+	 * @param isStatic whether this mesh is static or not. Allows for internal optimizations.
+	 * @param maxVertices the maximum number of vertices this mesh can hold
+	 * @param maxIndices the maximum number of indices this mesh can hold
+	 * @param use32BitIndices whether the indices are {@link GL20#GL_UNSIGNED_INT}, see {@link #needs32BitIndices(int)}. Sub data
+	 *           index buffers only support 16 bit indices, an {@link IndexBufferObject} is used instead.
+	 * @param attributes the {@link VertexAttributes}. */
+	public Mesh (VertexDataType type, boolean isStatic, int maxVertices, int maxIndices, boolean use32BitIndices,
+		VertexAttributes attributes) {
 		switch (type) {
 		case VertexBufferObject:
 			vertices = new VertexBufferObject(isStatic, maxVertices, attributes);
-			indices = new IndexBufferObject(isStatic, maxIndices);
+			indices = new IndexBufferObject(isStatic, maxIndices, use32BitIndices);
 			isVertexArray = false;
 			break;
 		case VertexBufferObjectSubData:
 			vertices = new VertexBufferObjectSubData(isStatic, maxVertices, attributes);
-			indices = new IndexBufferObjectSubData(isStatic, maxIndices);
+			indices = use32BitIndices ? new IndexBufferObject(isStatic, maxIndices, true)
+				: new IndexBufferObjectSubData(isStatic, maxIndices);
 			isVertexArray = false;
 			break;
 		case VertexBufferObjectWithVAO:
 			vertices = new VertexBufferObjectWithVAO(isStatic, maxVertices, attributes);
-			indices = new IndexBufferObjectSubData(isStatic, maxIndices);
+			indices = use32BitIndices ? new IndexBufferObject(isStatic, maxIndices, true)
+				: new IndexBufferObjectSubData(isStatic, maxIndices);
 			isVertexArray = false;
 			break;
 		case VertexArray:
 		default:
 			vertices = new VertexArray(maxVertices, attributes);
-			indices = new IndexArray(maxIndices);
+			indices = new IndexArray(maxIndices, use32BitIndices);
 			isVertexArray = true;
 			break;
 		}
@@ -419,6 +453,28 @@ public class Mesh implements Disposable {
 		return this;
 	}
 
+	/** Sets the indices of this Mesh. Meshes with 16 bit indices narrow every index, they must be smaller than 65536.
+	 *
+	 * @param indices the indices
+	 * @return the mesh for invocation chaining. */
+	public Mesh setIndices (int[] indices) {
+		return setIndices(indices, 0, indices.length);
+	}
+
+	/** Sets the indices of this Mesh. Meshes with 16 bit indices narrow every index, they must be smaller than 65536.
+	 *
+	 * @param indices the indices
+	 * @param offset the offset into the indices array
+	 * @param count the number of indices to copy
+	 * @return the mesh for invocation chaining. */
+	public Mesh setIndices (int[] indices, int offset, int count) {
+		if (!(this.indices instanceof IntIndexData))
+			throw new GdxRuntimeException("The mesh's index data doesn't support int indices: " + this.indices.getClass().getName());
+		((IntIndexData)this.indices).setIndices(indices, offset, count);
+
+		return this;
+	}
+
 	/** Copies the indices from the Mesh to the short array. The short array must be large enough to hold all the Mesh's indices.
 	 * @param indices the array to copy the indices to */
 	public void getIndices (short[] indices) {
@@ -462,6 +518,43 @@ public class Mesh implements Disposable {
 		((Buffer)indicesBuffer).position(pos);
 	}
 
+	/** Copies the indices from the Mesh to the int array, works for both 16 and 32 bit indices. The int array must be large
+	 * enough to hold destOffset + count indices.
+	 * @param srcOffset the zero-based offset of the first index to fetch
+	 * @param count the total amount of indices to copy, -1 for all remaining indices
+	 * @param indices the array to copy the indices to
+	 * @param destOffset the offset in the indices array to start copying */
+	public void getIndices (int srcOffset, int count, int[] indices, int destOffset) {
+		int max = getNumIndices();
+		if (count < 0) count = max - srcOffset;
+		if (srcOffset < 0 || srcOffset >= max || srcOffset + count > max) throw new IllegalArgumentException(
+			"Invalid range specified, offset: " + srcOffset + ", count: " + count + ", max: " + max);
+		if ((indices.length - destOffset) < count) throw new IllegalArgumentException(
+			"not enough room in indices array, has " + indices.length + " ints, needs " + count);
+		if (getIndexType() == GL20.GL_UNSIGNED_INT) {
+			IntBuffer indicesBuffer = getIndicesIntBuffer(false);
+			int pos = indicesBuffer.position();
+			((Buffer)indicesBuffer).position(srcOffset);
+			indicesBuffer.get(indices, destOffset, count);
+			((Buffer)indicesBuffer).position(pos);
+		} else {
+			ShortBuffer indicesBuffer = getIndicesBuffer(false);
+			for (int i = 0; i < count; i++)
+				indices[destOffset + i] = indicesBuffer.get(srcOffset + i) & 0xFFFF;
+		}
+	}
+
+	/** @return the index type, {@link GL20#GL_UNSIGNED_SHORT} or {@link GL20#GL_UNSIGNED_INT}. Index data that isn't an
+	 *         {@link IntIndexData} is always 16 bit. */
+	public int getIndexType () {
+		return indices instanceof IntIndexData ? ((IntIndexData)indices).getIndexType() : GL20.GL_UNSIGNED_SHORT;
+	}
+
+	/** @return whether a mesh with the given number of vertices needs 32 bit indices to address all of them */
+	public static boolean needs32BitIndices (int maxVertices) {
+		return maxVertices > 65536;
+	}
+
 	/** @return the number of defined indices */
 	public int getNumIndices () {
 		return indices.getNumIndices();
@@ -625,12 +718,13 @@ public class Mesh implements Disposable {
 
 		if (isVertexArray) {
 			if (indices.getNumIndices() > 0) {
-				ShortBuffer buffer = indices.getBuffer(false);
+				int indexType = getIndexType();
+				Buffer buffer = indexType == GL20.GL_UNSIGNED_INT ? getIndicesIntBuffer(false) : indices.getBuffer(false);
 				int oldPosition = buffer.position();
 				int oldLimit = buffer.limit();
-				((Buffer)buffer).position(offset);
-				Gdx.gl20.glDrawElements(primitiveType, count, GL20.GL_UNSIGNED_SHORT, buffer);
-				((Buffer)buffer).position(oldPosition);
+				buffer.position(offset);
+				Gdx.gl20.glDrawElements(primitiveType, count, indexType, buffer);
+				buffer.position(oldPosition);
 			} else {
 				Gdx.gl20.glDrawArrays(primitiveType, offset, count);
 			}
@@ -644,10 +738,12 @@ public class Mesh implements Disposable {
 						+ ", offset: " + offset + ", max: " + indices.getNumMaxIndices() + ")");
 				}
 
+				int indexType = getIndexType();
+				int indexSize = indexType == GL20.GL_UNSIGNED_INT ? 4 : 2;
 				if (isInstanced && numInstances > 0) {
-					Gdx.gl30.glDrawElementsInstanced(primitiveType, count, GL20.GL_UNSIGNED_SHORT, offset * 2, numInstances);
+					Gdx.gl30.glDrawElementsInstanced(primitiveType, count, indexType, offset * indexSize, numInstances);
 				} else {
-					Gdx.gl20.glDrawElements(primitiveType, count, GL20.GL_UNSIGNED_SHORT, offset * 2);
+					Gdx.gl20.glDrawElements(primitiveType, count, indexType, offset * indexSize);
 				}
 			} else {
 				if (isInstanced && numInstances > 0) {
@@ -792,7 +888,9 @@ public class Mesh implements Disposable {
 			throw new GdxRuntimeException("Invalid part specified ( offset=" + offset + ", count=" + count + ", max=" + max + " )");
 
 		final FloatBuffer verts = vertices.getBuffer(false);
-		final ShortBuffer index = indices.getBuffer(false);
+		final boolean intIndices = getIndexType() == GL20.GL_UNSIGNED_INT;
+		final ShortBuffer index = intIndices ? null : indices.getBuffer(false);
+		final IntBuffer intIndex = intIndices ? getIndicesIntBuffer(false) : null;
 		final VertexAttribute posAttrib = getVertexAttribute(Usage.Position);
 		final int posoff = posAttrib.offset / 4;
 		final int vertexSize = vertices.getAttributes().vertexSize / 4;
@@ -802,7 +900,7 @@ public class Mesh implements Disposable {
 		case 1:
 			if (numIndices > 0) {
 				for (int i = offset; i < end; i++) {
-					final int idx = (index.get(i) & 0xFFFF) * vertexSize + posoff;
+					final int idx = (intIndices ? intIndex.get(i) : index.get(i) & 0xFFFF) * vertexSize + posoff;
 					tmpV.set(verts.get(idx), 0, 0);
 					if (transform != null) tmpV.mul(transform);
 					out.ext(tmpV);
@@ -819,7 +917,7 @@ public class Mesh implements Disposable {
 		case 2:
 			if (numIndices > 0) {
 				for (int i = offset; i < end; i++) {
-					final int idx = (index.get(i) & 0xFFFF) * vertexSize + posoff;
+					final int idx = (intIndices ? intIndex.get(i) : index.get(i) & 0xFFFF) * vertexSize + posoff;
 					tmpV.set(verts.get(idx), verts.get(idx + 1), 0);
 					if (transform != null) tmpV.mul(transform);
 					out.ext(tmpV);
@@ -836,7 +934,7 @@ public class Mesh implements Disposable {
 		case 3:
 			if (numIndices > 0) {
 				for (int i = offset; i < end; i++) {
-					final int idx = (index.get(i) & 0xFFFF) * vertexSize + posoff;
+					final int idx = (intIndices ? intIndex.get(i) : index.get(i) & 0xFFFF) * vertexSize + posoff;
 					tmpV.set(verts.get(idx), verts.get(idx + 1), verts.get(idx + 2));
 					if (transform != null) tmpV.mul(transform);
 					out.ext(tmpV);
@@ -867,7 +965,9 @@ public class Mesh implements Disposable {
 		if (offset < 0 || count < 1 || offset + count > numIndices) throw new GdxRuntimeException("Not enough indices");
 
 		final FloatBuffer verts = vertices.getBuffer(false);
-		final ShortBuffer index = indices.getBuffer(false);
+		final boolean intIndices = getIndexType() == GL20.GL_UNSIGNED_INT;
+		final ShortBuffer index = intIndices ? null : indices.getBuffer(false);
+		final IntBuffer intIndex = intIndices ? getIndicesIntBuffer(false) : null;
 		final VertexAttribute posAttrib = getVertexAttribute(Usage.Position);
 		final int posoff = posAttrib.offset / 4;
 		final int vertexSize = vertices.getAttributes().vertexSize / 4;
@@ -878,7 +978,7 @@ public class Mesh implements Disposable {
 		switch (posAttrib.numComponents) {
 		case 1:
 			for (int i = offset; i < end; i++) {
-				final int idx = (index.get(i) & 0xFFFF) * vertexSize + posoff;
+				final int idx = (intIndices ? intIndex.get(i) : index.get(i) & 0xFFFF) * vertexSize + posoff;
 				tmpV.set(verts.get(idx), 0, 0);
 				if (transform != null) tmpV.mul(transform);
 				final float r = tmpV.sub(centerX, centerY, centerZ).len2();
@@ -887,7 +987,7 @@ public class Mesh implements Disposable {
 			break;
 		case 2:
 			for (int i = offset; i < end; i++) {
-				final int idx = (index.get(i) & 0xFFFF) * vertexSize + posoff;
+				final int idx = (intIndices ? intIndex.get(i) : index.get(i) & 0xFFFF) * vertexSize + posoff;
 				tmpV.set(verts.get(idx), verts.get(idx + 1), 0);
 				if (transform != null) tmpV.mul(transform);
 				final float r = tmpV.sub(centerX, centerY, centerZ).len2();
@@ -896,7 +996,7 @@ public class Mesh implements Disposable {
 			break;
 		case 3:
 			for (int i = offset; i < end; i++) {
-				final int idx = (index.get(i) & 0xFFFF) * vertexSize + posoff;
+				final int idx = (intIndices ? intIndex.get(i) : index.get(i) & 0xFFFF) * vertexSize + posoff;
 				tmpV.set(verts.get(idx), verts.get(idx + 1), verts.get(idx + 2));
 				if (transform != null) tmpV.mul(transform);
 				final float r = tmpV.sub(centerX, centerY, centerZ).len2();
@@ -975,6 +1075,14 @@ public class Mesh implements Disposable {
 		return indices.getBuffer(forWriting);
 	}
 
+	/** @return the backing intbuffer holding the indices, only available for meshes with 32 bit indices, see
+	 *         {@link #getIndexType()} */
+	public IntBuffer getIndicesIntBuffer (boolean forWriting) {
+		if (!(indices instanceof IntIndexData))
+			throw new GdxRuntimeException("The mesh's index data doesn't support int indices: " + indices.getClass().getName());
+		return ((IntIndexData)indices).getIntBuffer(forWriting);
+	}
+
 	private static void addManagedMesh (Application app, Mesh mesh) {
 		Array<Mesh> managedResources = meshes.get(app);
 		if (managedResources == null) managedResources = new Array<Mesh>();
@@ -1170,7 +1278,8 @@ public class Mesh implements Disposable {
 		}
 	}
 
-	/** Copies this mesh optionally removing duplicate vertices and/or reducing the amount of attributes.
+	/** Copies this mesh optionally removing duplicate vertices and/or reducing the amount of attributes. The copy has the index
+	 * type of this mesh, see {@link #getIndexType()}.
 	 * @param isStatic whether the new mesh is static or not. Allows for internal optimizations.
 	 * @param removeDuplicates whether to remove duplicate vertices if possible. Only the vertices specified by usage are checked.
 	 * @param usage which attributes (if available) to copy
@@ -1217,18 +1326,18 @@ public class Mesh implements Disposable {
 		}
 
 		int numIndices = getNumIndices();
-		short[] indices = null;
+		int[] indices = null;
 		if (numIndices > 0) {
-			indices = new short[numIndices];
-			getIndices(indices);
+			indices = new int[numIndices];
+			getIndices(0, -1, indices, 0);
 			if (removeDuplicates || newVertexSize != vertexSize) {
 				float[] tmp = new float[vertices.length];
 				int size = 0;
 				for (int i = 0; i < numIndices; i++) {
 					final int idx1 = indices[i] * vertexSize;
-					short newIndex = -1;
+					int newIndex = -1;
 					if (removeDuplicates) {
-						for (short j = 0; j < size && newIndex < 0; j++) {
+						for (int j = 0; j < size && newIndex < 0; j++) {
 							final int idx2 = j * newVertexSize;
 							boolean found = true;
 							for (int k = 0; k < checks.length && found; k++) {
@@ -1237,13 +1346,13 @@ public class Mesh implements Disposable {
 							if (found) newIndex = j;
 						}
 					}
-					if (newIndex > 0)
+					if (newIndex >= 0)
 						indices[i] = newIndex;
 					else {
 						final int idx = size * newVertexSize;
 						for (int j = 0; j < checks.length; j++)
 							tmp[idx + j] = vertices[idx1 + checks[j]];
-						indices[i] = (short)size;
+						indices[i] = size;
 						size++;
 					}
 				}
@@ -1252,11 +1361,8 @@ public class Mesh implements Disposable {
 			}
 		}
 
-		Mesh result;
-		if (attrs == null)
-			result = new Mesh(isStatic, numVertices, indices == null ? 0 : indices.length, getVertexAttributes());
-		else
-			result = new Mesh(isStatic, numVertices, indices == null ? 0 : indices.length, attrs);
+		Mesh result = new Mesh(isStatic, numVertices, indices == null ? 0 : indices.length,
+			getIndexType() == GL20.GL_UNSIGNED_INT, attrs == null ? getVertexAttributes() : new VertexAttributes(attrs));
 		result.setVertices(vertices, 0, numVertices * newVertexSize);
 		if (indices != null) result.setIndices(indices);
 		return result;
@@ -18,13 +18,22 @@ package com.badlogic.gdx.graphics.glutils;
 
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 
-public class IndexArray implements IndexData {
+public class IndexArray implements IntIndexData {
+	/** The 16 bit indices, null when the array holds 32 bit indices. */
 	final ShortBuffer buffer;
+	/** The 32 bit indices, null when the array holds 16 bit indices. */
+	final IntBuffer intBuffer;
 	final ByteBuffer byteBuffer;
+	final int indexType;
+	/** log2 of the size of an index in bytes. */
+	final int indexShift;
 
 	// used to work around bug: https://android-review.googlesource.com/#/c/73175/
 	private final boolean empty;
@@ -33,26 +42,41 @@ public class IndexArray implements IndexData {
 	 *
 	 * @param maxIndices the maximum number of indices this buffer can hold */
 	public IndexArray (int maxIndices) {
+		this(maxIndices, false);
+	}
+
+	/** Creates a new IndexArray to be used with vertex arrays.
+	 *
+	 * @param maxIndices the maximum number of indices this buffer can hold
+	 * @param use32BitIndices whether to store the indices as {@link GL20#GL_UNSIGNED_INT} */
+	public IndexArray (int maxIndices, boolean use32BitIndices) {
 
 		empty = maxIndices == 0;
 		if (empty) {
 			maxIndices = 1; // avoid allocating a zero-sized buffer because of bug in Android's ART < Android 5.0
 		}
 
-		byteBuffer = BufferUtils.newUnsafeByteBuffer(maxIndices * 2);
-		buffer = byteBuffer.asShortBuffer();
-		((Buffer)buffer).flip();
+		indexType = use32BitIndices ? GL20.GL_UNSIGNED_INT : GL20.GL_UNSIGNED_SHORT;
+		indexShift = use32BitIndices ? 2 : 1;
+		byteBuffer = BufferUtils.newUnsafeByteBuffer(maxIndices << indexShift);
+		buffer = use32BitIndices ? null : byteBuffer.asShortBuffer();
+		intBuffer = use32BitIndices ? byteBuffer.asIntBuffer() : null;
+		indices().flip();
 		((Buffer)byteBuffer).flip();
 	}
 
 	/** @return the number of indices currently stored in this buffer */
 	public int getNumIndices () {
-		return empty ? 0 : buffer.limit();
+		return empty ? 0 : indices().limit();
 	}
 
 	/** @return the maximum number of indices this IndexArray can store. */
 	public int getNumMaxIndices () {
-		return empty ? 0 : buffer.capacity();
+		return empty ? 0 : indices().capacity();
+	}
+
+	private Buffer indices () {
+		return intBuffer != null ? intBuffer : buffer;
 	}
 
 	/**
@@ -69,26 +93,60 @@ public class IndexArray implements IndexData {
 	 * @param offset the offset to start copying the data from
 	 * @param count the number of shorts to copy */
 	public void setIndices (short[] indices, int offset, int count) {
-		((Buffer)buffer).clear();
-		buffer.put(indices, offset, count);
-		((Buffer)buffer).flip();
+		if (intBuffer != null) {
+			((Buffer)intBuffer).clear();
+			for (int i = offset, n = offset + count; i < n; i++)
+				intBuffer.put(indices[i] & 0xFFFF);
+			((Buffer)intBuffer).flip();
+		} else {
+			((Buffer)buffer).clear();
+			buffer.put(indices, offset, count);
+			((Buffer)buffer).flip();
+		}
 		((Buffer)byteBuffer).position(0);
-		((Buffer)byteBuffer).limit(count << 1);
+		((Buffer)byteBuffer).limit(count << indexShift);
 	}
 
 	public void setIndices (ShortBuffer indices) {
 		int pos = indices.position();
-		((Buffer)buffer).clear();
-		((Buffer)buffer).limit(indices.remaining());
-		buffer.put(indices);
-		((Buffer)buffer).flip();
+		if (intBuffer != null) {
+			((Buffer)intBuffer).clear();
+			while (indices.hasRemaining())
+				intBuffer.put(indices.get() & 0xFFFF);
+			((Buffer)intBuffer).flip();
+		} else {
+			((Buffer)buffer).clear();
+			((Buffer)buffer).limit(indices.remaining());
+			buffer.put(indices);
+			((Buffer)buffer).flip();
+		}
 		((Buffer)indices).position(pos);
 		((Buffer)byteBuffer).position(0);
-		((Buffer)byteBuffer).limit(buffer.limit() << 1);
+		((Buffer)byteBuffer).limit(indices().limit() << indexShift);
+	}
+
+	public void setIndices (int[] indices, int offset, int count) {
+		if (intBuffer != null) {
+			((Buffer)intBuffer).clear();
+			intBuffer.put(indices, offset, count);
+			((Buffer)intBuffer).flip();
+		} else {
+			((Buffer)buffer).clear();
+			for (int i = offset, n = offset + count; i < n; i++)
+				buffer.put((short)indices[i]);
+			((Buffer)buffer).flip();
+		}
+		((Buffer)byteBuffer).position(0);
+		((Buffer)byteBuffer).limit(count << indexShift);
 	}
 
 	@Override
 	public void updateIndices (int targetOffset, short[] indices, int offset, int count) {
+		if (intBuffer != null) {
+			for (int i = 0; i < count; i++)
+				intBuffer.put(targetOffset + i, indices[offset + i] & 0xFFFF);
+			return;
+		}
 		final int pos = byteBuffer.position();
 		((Buffer)byteBuffer).position(targetOffset * 2);
 		BufferUtils.copy(indices, offset, byteBuffer, count);
@@ -99,14 +157,26 @@ public class IndexArray implements IndexData {
 	@Override
 	@Deprecated
 	public ShortBuffer getBuffer () {
-		return buffer;
+		return getBuffer(true);
 	}
 
 	@Override
 	public ShortBuffer getBuffer (boolean forWriting) {
+		if (buffer == null) throw new GdxRuntimeException("IndexArray holds 32 bit indices, use getIntBuffer");
 		return buffer;
 	}
 
+	@Override
+	public IntBuffer getIntBuffer (boolean forWriting) {
+		if (intBuffer == null) throw new GdxRuntimeException("IndexArray holds 16 bit indices, use getBuffer");
+		return intBuffer;
+	}
+
+	@Override
+	public int getIndexType () {
+		return indexType;
+	}
+
 	/** Binds this IndexArray for rendering with glDrawElements. */
 	public void bind () {
 	}
@@ -18,6 +18,7 @@ package com.badlogic.gdx.graphics.glutils;
 
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 
 import com.badlogic.gdx.Gdx;
@@ -42,13 +43,24 @@ import com.badlogic.gdx.utils.GdxRuntimeException;
  * </p>
  *
  * <p>
+ * Indices are 16 bit unless the buffer is created with 32 bit indices, in which case they are accessed through
+ * {@link #getIntBuffer(boolean)} and drawn as {@link GL20#GL_UNSIGNED_INT}.
+ * </p>
+ *
+ * <p>
  * VertexBufferObjects must be disposed via the {@link #dispose()} method when no longer needed
  * </p>
  *
  * @author mzechner, Thorsten Schleinzer */
-public class IndexBufferObject implements IndexData {
+public class IndexBufferObject implements IntIndexData {
+	/** The 16 bit indices, null when the buffer holds 32 bit indices. */
 	final ShortBuffer buffer;
+	/** The 32 bit indices, null when the buffer holds 16 bit indices. */
+	final IntBuffer intBuffer;
 	final ByteBuffer byteBuffer;
+	final int indexType;
+	/** log2 of the size of an index in bytes. */
+	final int indexShift;
 	final boolean ownsBuffer;
 	int bufferHandle;
 	final boolean isDirect;
@@ -71,18 +83,31 @@ public class IndexBufferObject implements IndexData {
 	 * @param isStatic whether the index buffer is static
 	 * @param maxIndices the maximum number of indices this buffer can hold */
 	public IndexBufferObject (boolean isStatic, int maxIndices) {
+		this(isStatic, maxIndices, false);
+	}
+
+	/** Creates a new IndexBufferObject.
+	 *
+	 * @param isStatic whether the index buffer is static
+	 * @param maxIndices the maximum number of indices this buffer can hold
+	 * @param use32BitIndices whether to store the indices as {@link GL20#GL_UNSIGNED_INT}, needed to address more than 65536
+	 *           vertices */
+	public IndexBufferObject (boolean isStatic, int maxIndices, boolean use32BitIndices) {
 
 		empty = maxIndices == 0;
 		if (empty) {
 			maxIndices = 1; // avoid allocating a zero-sized buffer because of bug in Android's ART < Android 5.0
 		}
 
-		byteBuffer = BufferUtils.newUnsafeByteBuffer(maxIndices * 2);
+		indexType = use32BitIndices ? GL20.GL_UNSIGNED_INT : GL20.GL_UNSIGNED_SHORT;
+		indexShift = use32BitIndices ? 2 : 1;
+		byteBuffer = BufferUtils.newUnsafeByteBuffer(maxIndices << indexShift);
 		isDirect = true;
 
-		buffer = byteBuffer.asShortBuffer();
+		buffer = use32BitIndices ? null : byteBuffer.asShortBuffer();
+		intBuffer = use32BitIndices ? byteBuffer.asIntBuffer() : null;
 		ownsBuffer = true;
-		((Buffer)buffer).flip();
+		indices().flip();
 		((Buffer)byteBuffer).flip();
 		bufferHandle = Gdx.gl20.glGenBuffer();
 		usage = isStatic ? GL20.GL_STATIC_DRAW : GL20.GL_DYNAMIC_DRAW;
@@ -95,6 +120,9 @@ public class IndexBufferObject implements IndexData {
 		isDirect = true;
 
 		buffer = byteBuffer.asShortBuffer();
+		intBuffer = null;
+		indexType = GL20.GL_UNSIGNED_SHORT;
+		indexShift = 1;
 		ownsBuffer = false;
 		bufferHandle = Gdx.gl20.glGenBuffer();
 		usage = isStatic ? GL20.GL_STATIC_DRAW : GL20.GL_DYNAMIC_DRAW;
@@ -102,12 +130,16 @@ public class IndexBufferObject implements IndexData {
 
 	/** @return the number of indices currently stored in this buffer */
 	public int getNumIndices () {
-		return empty ? 0 : buffer.limit();
+		return empty ? 0 : indices().limit();
 	}
 
 	/** @return the maximum number of indices this IndexBufferObject can store. */
 	public int getNumMaxIndices () {
-		return empty ? 0 : buffer.capacity();
+		return empty ? 0 : indices().capacity();
+	}
+
+	private Buffer indices () {
+		return intBuffer != null ? intBuffer : buffer;
 	}
 
 	/**
@@ -125,11 +157,18 @@ public class IndexBufferObject implements IndexData {
 	 * @param count the number of shorts to copy */
 	public void setIndices (short[] indices, int offset, int count) {
 		isDirty = true;
-		((Buffer)buffer).clear();
-		buffer.put(indices, offset, count);
-		((Buffer)buffer).flip();
+		if (intBuffer != null) {
+			((Buffer)intBuffer).clear();
+			for (int i = offset, n = offset + count; i < n; i++)
+				intBuffer.put(indices[i] & 0xFFFF);
+			((Buffer)intBuffer).flip();
+		} else {
+			((Buffer)buffer).clear();
+			buffer.put(indices, offset, count);
+			((Buffer)buffer).flip();
+		}
 		((Buffer)byteBuffer).position(0);
-		((Buffer)byteBuffer).limit(count << 1);
+		((Buffer)byteBuffer).limit(count << indexShift);
 
 		if (isBound) {
 			Gdx.gl20.glBufferData(GL20.GL_ELEMENT_ARRAY_BUFFER, byteBuffer.limit(), byteBuffer, usage);
@@ -140,12 +179,40 @@ public class IndexBufferObject implements IndexData {
 	public void setIndices (ShortBuffer indices) {
 		isDirty = true;
 		int pos = indices.position();
-		((Buffer)buffer).clear();
-		buffer.put(indices);
-		((Buffer)buffer).flip();
+		if (intBuffer != null) {
+			((Buffer)intBuffer).clear();
+			while (indices.hasRemaining())
+				intBuffer.put(indices.get() & 0xFFFF);
+			((Buffer)intBuffer).flip();
+		} else {
+			((Buffer)buffer).clear();
+			buffer.put(indices);
+			((Buffer)buffer).flip();
+		}
 		((Buffer)indices).position(pos);
 		((Buffer)byteBuffer).position(0);
-		((Buffer)byteBuffer).limit(buffer.limit() << 1);
+		((Buffer)byteBuffer).limit(indices().limit() << indexShift);
+
+		if (isBound) {
+			Gdx.gl20.glBufferData(GL20.GL_ELEMENT_ARRAY_BUFFER, byteBuffer.limit(), byteBuffer, usage);
+			isDirty = false;
+		}
+	}
+
+	public void setIndices (int[] indices, int offset, int count) {
+		isDirty = true;
+		if (intBuffer != null) {
+			((Buffer)intBuffer).clear();
+			intBuffer.put(indices, offset, count);
+			((Buffer)intBuffer).flip();
+		} else {
+			((Buffer)buffer).clear();
+			for (int i = offset, n = offset + count; i < n; i++)
+				buffer.put((short)indices[i]);
+			((Buffer)buffer).flip();
+		}
+		((Buffer)byteBuffer).position(0);
+		((Buffer)byteBuffer).limit(count << indexShift);
 
 		if (isBound) {
 			Gdx.gl20.glBufferData(GL20.GL_ELEMENT_ARRAY_BUFFER, byteBuffer.limit(), byteBuffer, usage);
@@ -156,11 +223,16 @@ public class IndexBufferObject implements IndexData {
 	@Override
 	public void updateIndices (int targetOffset, short[] indices, int offset, int count) {
 		isDirty = true;
-		final int pos = byteBuffer.position();
-		((Buffer)byteBuffer).position(targetOffset * 2);
-		BufferUtils.copy(indices, offset, byteBuffer, count);
-		((Buffer)byteBuffer).position(pos);
-		((Buffer)buffer).position(0);
+		if (intBuffer != null) {
+			for (int i = 0; i < count; i++)
+				intBuffer.put(targetOffset + i, indices[offset + i] & 0xFFFF);
+		} else {
+			final int pos = byteBuffer.position();
+			((Buffer)byteBuffer).position(targetOffset * 2);
+			BufferUtils.copy(indices, offset, byteBuffer, count);
+			((Buffer)byteBuffer).position(pos);
+			((Buffer)buffer).position(0);
+		}
 
 		if (isBound) {
 			Gdx.gl20.glBufferData(GL20.GL_ELEMENT_ARRAY_BUFFER, byteBuffer.limit(), byteBuffer, usage);
@@ -172,23 +244,35 @@ public class IndexBufferObject implements IndexData {
 	@Override
 	@Deprecated
 	public ShortBuffer getBuffer () {
-		isDirty = true;
-		return buffer;
+		return getBuffer(true);
 	}
 
 	@Override
 	public ShortBuffer getBuffer (boolean forWriting) {
+		if (buffer == null) throw new GdxRuntimeException("IndexBufferObject holds 32 bit indices, use getIntBuffer");
 		isDirty |= forWriting;
 		return buffer;
 	}
 
+	@Override
+	public IntBuffer getIntBuffer (boolean forWriting) {
+		if (intBuffer == null) throw new GdxRuntimeException("IndexBufferObject holds 16 bit indices, use getBuffer");
+		isDirty |= forWriting;
+		return intBuffer;
+	}
+
+	@Override
+	public int getIndexType () {
+		return indexType;
+	}
+
 	/** Binds this IndexBufferObject for rendering with glDrawElements. */
 	public void bind () {
 		if (bufferHandle == 0) throw new GdxRuntimeException("No buffer allocated!");
 
 		Gdx.gl20.glBindBuffer(GL20.GL_ELEMENT_ARRAY_BUFFER, bufferHandle);
 		if (isDirty) {
-			((Buffer)byteBuffer).limit(buffer.limit() * 2);
+			((Buffer)byteBuffer).limit(indices().limit() << indexShift);
 			Gdx.gl20.glBufferData(GL20.GL_ELEMENT_ARRAY_BUFFER, byteBuffer.limit(), byteBuffer, usage);
 			isDirty = false;
 		}
@@ -18,6 +18,7 @@ package com.badlogic.gdx.graphics.glutils;
 
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 
 import com.badlogic.gdx.Gdx;
@@ -37,11 +38,15 @@ import com.badlogic.gdx.utils.GdxRuntimeException;
  * </p>
  *
  * <p>
+ * Only supports 16 bit indices, use {@link IndexBufferObject} for 32 bit indices.
+ * </p>
+ *
+ * <p>
  * VertexBufferObjects must be disposed via the {@link #dispose()} method when no longer needed
  * </p>
  *
  * @author mzechner */
-public class IndexBufferObjectSubData implements IndexData {
+public class IndexBufferObjectSubData implements IntIndexData {
 	final ShortBuffer buffer;
 	final ByteBuffer byteBuffer;
 	int bufferHandle;
@@ -140,6 +145,22 @@ public class IndexBufferObjectSubData implements IndexData {
 		}
 	}
 
+	/** Narrows the indices to 16 bit, every index must be smaller than 65536. */
+	public void setIndices (int[] indices, int offset, int count) {
+		isDirty = true;
+		((Buffer)buffer).clear();
+		for (int i = offset, n = offset + count; i < n; i++)
+			buffer.put((short)indices[i]);
+		((Buffer)buffer).flip();
+		((Buffer)byteBuffer).position(0);
+		((Buffer)byteBuffer).limit(count << 1);
+
+		if (isBound) {
+			Gdx.gl20.glBufferSubData(GL20.GL_ELEMENT_ARRAY_BUFFER, 0, byteBuffer.limit(), byteBuffer);
+			isDirty = false;
+		}
+	}
+
 	@Override
 	public void updateIndices (int targetOffset, short[] indices, int offset, int count) {
 		isDirty = true;
@@ -169,6 +190,16 @@ public class IndexBufferObjectSubData implements IndexData {
 		return buffer;
 	}
 
+	@Override
+	public IntBuffer getIntBuffer (boolean forWriting) {
+		throw new GdxRuntimeException("IndexBufferObjectSubData only supports 16 bit indices");
+	}
+
+	@Override
+	public int getIndexType () {
+		return GL20.GL_UNSIGNED_SHORT;
+	}
+
 	/** Binds this IndexBufferObject for rendering with glDrawElements. */
 	public void bind () {
 		if (bufferHandle == 0) throw new GdxRuntimeException("IndexBufferObject cannot be used after it has been disposed.");
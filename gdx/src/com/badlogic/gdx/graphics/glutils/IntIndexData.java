@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.graphics.glutils;
+
+import java.nio.IntBuffer;
+
+/** An {@link IndexData} that can hold 32 bit indices. Indices are 16 bit unless the implementation was created with 32 bit
+ * indices, see {@link #getIndexType()}. {@link com.badlogic.gdx.graphics.Mesh} treats index data that doesn't implement this
+ * interface as 16 bit. */
+public interface IntIndexData extends IndexData {
+	/** Sets the indices of this IndexBufferObject, discarding the old indices, like {@link #setIndices(short[], int, int)}. When
+	 * the indices are 16 bit, every index must be smaller than 65536.
+	 * @param indices the index data
+	 * @param offset the offset to start copying the data from
+	 * @param count the number of ints to copy */
+	public void setIndices (int[] indices, int offset, int count);
+
+	/** Returns the underlying IntBuffer for reading or writing, only available when {@link #getIndexType()} is
+	 * {@link com.badlogic.gdx.graphics.GL20#GL_UNSIGNED_INT}.
+	 * @param forWriting when true, the underlying buffer will be uploaded on the next call to {@link #bind()}.
+	 * @return the underlying int buffer. */
+	public IntBuffer getIntBuffer (boolean forWriting);
+
+	/** @return the type passed to glDrawElements, {@link com.badlogic.gdx.graphics.GL20#GL_UNSIGNED_SHORT} or
+	 *         {@link com.badlogic.gdx.graphics.GL20#GL_UNSIGNED_INT}. 32 bit indices need OpenGL ES 3.0 or the
+	 *         OES_element_index_uint extension on OpenGL ES 2.0. */
+	public int getIndexType ();
+}
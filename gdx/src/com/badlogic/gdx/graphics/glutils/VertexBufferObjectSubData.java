@@ -49,6 +49,14 @@ public class VertexBufferObjectSubData implements VertexData {
 	final int usage;
 	boolean isDirty = false;
 	boolean isBound = false;
+	/** Most byte ranges kept apart for upload, a further range is merged into the nearest one. */
+	static final int MAX_DIRTY_RANGES = 8;
+	/** Ranges less than this many bytes apart are uploaded as one. */
+	static final int DIRTY_RANGE_GAP = 4096;
+	/** Byte ranges written by {@link #updateVertices(int, float[], int, int)} since the last upload, start and end of each,
+	 * sorted and apart by more than {@link #DIRTY_RANGE_GAP}. */
+	final int[] dirtyRanges = new int[MAX_DIRTY_RANGES * 2];
+	int numDirtyRanges;
 
 	/** Constructs a new interleaved VertexBufferObject.
 	 *
@@ -118,6 +126,7 @@ public class VertexBufferObjectSubData implements VertexData {
 		if (isBound) {
 			Gdx.gl20.glBufferSubData(GL20.GL_ARRAY_BUFFER, 0, byteBuffer.limit(), byteBuffer);
 			isDirty = false;
+			numDirtyRanges = 0;
 		}
 	}
 
@@ -139,9 +148,10 @@ public class VertexBufferObjectSubData implements VertexData {
 		bufferChanged();
 	}
 
+	/** Copies the vertices to the buffer. Updates within the current vertices only upload the changed range with
+	 * glBufferSubData, right away when bound or on the next {@link #bind(ShaderProgram)}. */
 	@Override
 	public void updateVertices (int targetOffset, float[] vertices, int sourceOffset, int count) {
-		isDirty = true;
 		if (isDirect) {
 			final int pos = byteBuffer.position();
 			((Buffer)byteBuffer).position(targetOffset * 4);
@@ -150,7 +160,52 @@ public class VertexBufferObjectSubData implements VertexData {
 		} else
 			throw new GdxRuntimeException("Buffer must be allocated direct."); // Should never happen
 
-		bufferChanged();
+		final int start = targetOffset * 4, end = start + count * 4;
+		if (end > buffer.limit() * 4) {
+			// outside of the uploaded vertices, the whole buffer has to be sent again
+			isDirty = true;
+			bufferChanged();
+		} else if (isBound && !isDirty) {
+			uploadRange(start, end);
+		} else {
+			addDirtyRange(start, end);
+		}
+	}
+
+	private void addDirtyRange (int start, int end) {
+		final int[] ranges = dirtyRanges;
+		final int n = numDirtyRanges * 2;
+		int i = 0;
+		while (i < n && ranges[i + 1] + DIRTY_RANGE_GAP < start)
+			i += 2;
+		// the ranges from i to j overlap or nearly touch the new range and are replaced by their union
+		int j = i;
+		while (j < n && ranges[j] <= end + DIRTY_RANGE_GAP) {
+			start = Math.min(start, ranges[j]);
+			end = Math.max(end, ranges[j + 1]);
+			j += 2;
+		}
+		if (i == j && numDirtyRanges == MAX_DIRTY_RANGES) {
+			// no room for another range, grow the nearer neighbor over the new one
+			if (i == n || (i > 0 && start - ranges[i - 1] < ranges[i] - end))
+				ranges[i - 1] = end;
+			else
+				ranges[i] = start;
+			return;
+		}
+		System.arraycopy(ranges, j, ranges, i + 2, n - j);
+		ranges[i] = start;
+		ranges[i + 1] = end;
+		numDirtyRanges += 1 - (j - i) / 2;
+	}
+
+	private void uploadRange (int start, int end) {
+		final int pos = byteBuffer.position(), limit = byteBuffer.limit();
+		((Buffer)byteBuffer).limit(end);
+		((Buffer)byteBuffer).position(start);
+		Gdx.gl20.glBufferSubData(GL20.GL_ARRAY_BUFFER, start, end - start, byteBuffer);
+		((Buffer)byteBuffer).limit(limit);
+		((Buffer)byteBuffer).position(pos);
 	}
 
 	/** Binds this VertexBufferObject for rendering via glDrawArrays or glDrawElements
@@ -170,6 +225,11 @@ public class VertexBufferObjectSubData implements VertexData {
 			((Buffer)byteBuffer).limit(buffer.limit() * 4);
 			gl.glBufferData(GL20.GL_ARRAY_BUFFER, byteBuffer.limit(), byteBuffer, usage);
 			isDirty = false;
+			numDirtyRanges = 0;
+		} else {
+			for (int i = 0; i < numDirtyRanges * 2; i += 2)
+				uploadRange(dirtyRanges[i], dirtyRanges[i + 1]);
+			numDirtyRanges = 0;
 		}
 
 		final int numAttributes = attributes.size();
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.graphics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ShortBuffer;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Mesh.VertexDataType;
+import com.badlogic.gdx.graphics.glutils.IndexArray;
+import com.badlogic.gdx.graphics.glutils.IndexData;
+import com.badlogic.gdx.graphics.glutils.VertexArray;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+public class MeshTest {
+	@BeforeClass
+	public static void load () {
+		GdxNativesLoader.load();
+	}
+
+	private static Mesh mesh (int maxVertices, int maxIndices, boolean use32BitIndices) {
+		return new Mesh(VertexDataType.VertexArray, false, maxVertices, maxIndices, use32BitIndices,
+			new VertexAttributes(VertexAttribute.Position()));
+	}
+
+	@Test
+	public void needs32BitIndices () {
+		assertFalse(Mesh.needs32BitIndices(65536));
+		assertTrue(Mesh.needs32BitIndices(65537));
+	}
+
+	@Test
+	public void indexType () {
+		Mesh mesh = mesh(4, 6, false);
+		assertEquals(GL20.GL_UNSIGNED_SHORT, mesh.getIndexType());
+		mesh.dispose();
+		mesh = mesh(4, 6, true);
+		assertEquals(GL20.GL_UNSIGNED_INT, mesh.getIndexType());
+		mesh.dispose();
+	}
+
+	@Test
+	public void intIndicesRoundTrip () {
+		Mesh mesh = mesh(4, 4, true);
+		int[] indices = {0, 65535, 65536, 100000};
+		mesh.setIndices(indices);
+		assertEquals(4, mesh.getNumIndices());
+		int[] result = new int[4];
+		mesh.getIndices(0, -1, result, 0);
+		assertArrayEquals(indices, result);
+		assertEquals(100000, mesh.getIndicesIntBuffer(false).get(3));
+		mesh.dispose();
+	}
+
+	@Test
+	public void intIndicesNarrowTo16Bit () {
+		Mesh mesh = mesh(4, 4, false);
+		mesh.setIndices(new int[] {3, 2, 65535, 0}, 1, 3);
+		assertEquals(3, mesh.getNumIndices());
+		int[] result = new int[3];
+		mesh.getIndices(0, 3, result, 0);
+		assertArrayEquals(new int[] {2, 65535, 0}, result);
+		short[] shorts = new short[3];
+		mesh.getIndices(shorts);
+		assertArrayEquals(new short[] {2, -1, 0}, shorts);
+		mesh.dispose();
+	}
+
+	@Test
+	public void shortIndicesWidenUnsigned () {
+		Mesh mesh = mesh(4, 3, true);
+		mesh.setIndices(new short[] {0, 1, (short)65535});
+		int[] result = new int[3];
+		mesh.getIndices(0, -1, result, 0);
+		assertArrayEquals(new int[] {0, 1, 65535}, result);
+		mesh.dispose();
+	}
+
+	@Test(expected = GdxRuntimeException.class)
+	public void shortBufferOf32BitMesh () {
+		Mesh mesh = mesh(4, 3, true);
+		try {
+			mesh.getIndicesBuffer(false);
+		} finally {
+			mesh.dispose();
+		}
+	}
+
+	/** The copy is a buffer object mesh, which is created with a GL that does nothing. */
+	@Test
+	public void copyOf32BitMesh () {
+		GL20 gl = Gdx.gl20;
+		Gdx.gl20 = (GL20)Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class[] {GL20.class}, new InvocationHandler() {
+			public Object invoke (Object proxy, Method method, Object[] args) {
+				Class<?> type = method.getReturnType();
+				return type == int.class ? 0 : type == boolean.class ? false : null;
+			}
+		});
+		try {
+			Mesh mesh = mesh(4, 6, true);
+			mesh.setVertices(new float[] {0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 0});
+			mesh.setIndices(new int[] {0, 1, 2, 3, 2, 1});
+			Mesh copy = mesh.copy(false);
+			assertEquals(GL20.GL_UNSIGNED_INT, copy.getIndexType());
+			int[] indices = new int[6];
+			copy.getIndices(0, -1, indices, 0);
+			assertArrayEquals(new int[] {0, 1, 2, 3, 2, 1}, indices);
+			copy.dispose();
+
+			// the last vertex duplicates the first, its index is remapped
+			copy = mesh.copy(false, true, null);
+			assertEquals(GL20.GL_UNSIGNED_INT, copy.getIndexType());
+			assertEquals(3, copy.getNumVertices());
+			float[] vertices = new float[9];
+			copy.getVertices(vertices);
+			assertArrayEquals(new float[] {0, 0, 0, 1, 0, 0, 0, 1, 0}, vertices, 0);
+			copy.getIndices(0, -1, indices, 0);
+			assertArrayEquals(new int[] {0, 1, 2, 0, 2, 1}, indices);
+			copy.dispose();
+			mesh.dispose();
+		} finally {
+			Gdx.gl20 = gl;
+		}
+	}
+
+	@Test
+	public void boundingBoxWith32BitIndices () {
+		Mesh mesh = mesh(4, 2, true);
+		mesh.setVertices(new float[] {-5, 0, 0, 1, 2, 3, 4, 5, 6, 9, 9, 9});
+		mesh.setIndices(new int[] {1, 2});
+		BoundingBox box = mesh.calculateBoundingBox(new BoundingBox(), 0, 2);
+		assertEquals(1, box.min.x, 0);
+		assertEquals(2, box.min.y, 0);
+		assertEquals(6, box.max.z, 0);
+		mesh.dispose();
+	}
+
+	/** Index data that predates 32 bit indices is 16 bit and can't take int indices. */
+	@Test
+	public void shortOnlyIndexData () {
+		final IndexArray array = new IndexArray(3);
+		IndexData indices = new IndexData() {
+			public int getNumIndices () {
+				return array.getNumIndices();
+			}
+
+			public int getNumMaxIndices () {
+				return array.getNumMaxIndices();
+			}
+
+			public void setIndices (short[] indices, int offset, int count) {
+				array.setIndices(indices, offset, count);
+			}
+
+			public void setIndices (ShortBuffer indices) {
+				array.setIndices(indices);
+			}
+
+			public void updateIndices (int targetOffset, short[] indices, int offset, int count) {
+				array.updateIndices(targetOffset, indices, offset, count);
+			}
+
+			@Deprecated
+			public ShortBuffer getBuffer () {
+				return array.getBuffer(true);
+			}
+
+			public ShortBuffer getBuffer (boolean forWriting) {
+				return array.getBuffer(forWriting);
+			}
+
+			public void bind () {
+			}
+
+			public void unbind () {
+			}
+
+			public void invalidate () {
+			}
+
+			public void dispose () {
+				array.dispose();
+			}
+		};
+		Mesh mesh = new Mesh(new VertexArray(3, VertexAttribute.Position()), indices, true);
+		assertEquals(GL20.GL_UNSIGNED_SHORT, mesh.getIndexType());
+		mesh.setIndices(new short[] {2, 1, 0});
+		int[] result = new int[3];
+		mesh.getIndices(0, -1, result, 0);
+		assertArrayEquals(new int[] {2, 1, 0}, result);
+		try {
+			mesh.setIndices(new int[] {0, 1, 2});
+			throw new AssertionError("int indices accepted by 16 bit only index data");
+		} catch (GdxRuntimeException expected) {
+		}
+		mesh.dispose();
+	}
+}
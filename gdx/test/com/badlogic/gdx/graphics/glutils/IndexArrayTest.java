@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.graphics.glutils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+public class IndexArrayTest {
+	@BeforeClass
+	public static void load () {
+		GdxNativesLoader.load();
+	}
+
+	@Test
+	public void shortIndices () {
+		IndexArray array = new IndexArray(4);
+		assertEquals(GL20.GL_UNSIGNED_SHORT, array.getIndexType());
+		array.setIndices(new short[] {1, 2, 3}, 0, 3);
+		array.updateIndices(1, new short[] {7}, 0, 1);
+		assertEquals(3, array.getNumIndices());
+		assertEquals(4, array.getNumMaxIndices());
+		ShortBuffer buffer = array.getBuffer(false);
+		assertEquals(7, buffer.get(1));
+		array.dispose();
+	}
+
+	@Test
+	public void intIndices () {
+		IndexArray array = new IndexArray(4, true);
+		assertEquals(GL20.GL_UNSIGNED_INT, array.getIndexType());
+		array.setIndices(new int[] {9, 70000, 80000, 90000}, 1, 3);
+		assertEquals(3, array.getNumIndices());
+		assertEquals(4, array.getNumMaxIndices());
+		array.updateIndices(2, new short[] {(short)65535}, 0, 1);
+		IntBuffer buffer = array.getIntBuffer(false);
+		int[] result = new int[3];
+		buffer.get(result);
+		buffer.rewind();
+		assertArrayEquals(new int[] {70000, 80000, 65535}, result);
+		array.dispose();
+	}
+
+	@Test
+	public void shortIndicesWidenUnsigned () {
+		IndexArray array = new IndexArray(2, true);
+		ShortBuffer indices = ShortBuffer.wrap(new short[] {5, (short)40000});
+		array.setIndices(indices);
+		assertEquals(0, indices.position());
+		assertEquals(2, array.getNumIndices());
+		assertEquals(40000, array.getIntBuffer(false).get(1));
+		array.dispose();
+	}
+
+	@Test
+	public void empty () {
+		IndexArray array = new IndexArray(0, true);
+		assertEquals(0, array.getNumIndices());
+		assertEquals(0, array.getNumMaxIndices());
+		array.dispose();
+	}
+
+	@Test(expected = GdxRuntimeException.class)
+	public void intBufferOfShortIndices () {
+		IndexArray array = new IndexArray(4);
+		try {
+			array.getIntBuffer(false);
+		} finally {
+			array.dispose();
+		}
+	}
+
+	@Test(expected = GdxRuntimeException.class)
+	public void shortBufferOfIntIndices () {
+		IndexArray array = new IndexArray(4, true);
+		try {
+			array.getBuffer(false);
+		} finally {
+			array.dispose();
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import java.nio.Buffer;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Mesh.VertexDataType;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+
+/** Stores the vertices of many chunks in a few large meshes. Each page is a {@link Mesh} backed by a
+ * {@link com.badlogic.gdx.graphics.glutils.VertexBufferObjectSubData} whose index buffer repeats two triangles per quad, so a
+ * range of quads is drawn with an index offset, no base vertex needed. Ranges are handed out first fit from a free list per page
+ * that coalesces neighboring blocks on free, and rewriting a range only uploads that range with glBufferSubData.
+ * <p>
+ * Ranges are addressed by their global vertex index, {@code page * pageVertices + vertex}. */
+public class VoxelArena implements Disposable {
+	/** Ranges are multiples of this many vertices, keeps the free lists short. */
+	public static final int BLOCK_VERTICES = 64;
+
+	static class Page {
+		final Mesh mesh;
+		/** Free blocks sorted by start, in vertices. */
+		final IntArray freeStarts = new IntArray();
+		final IntArray freeCounts = new IntArray();
+
+		Page (Mesh mesh, int vertices) {
+			this.mesh = mesh;
+			freeStarts.add(0);
+			freeCounts.add(vertices);
+		}
+	}
+
+	public final VertexAttributes attributes;
+	/** Vertices per page, a multiple of {@link #BLOCK_VERTICES}. */
+	public final int pageVertices;
+	private final int vertexSize;
+	private final int[] quadIndices;
+	private final Array<Page> pages = new Array<Page>();
+	private int usedVertices;
+
+	/** @param attributes the vertex layout of every page
+	 * @param pageVertices the vertices per page, rounded up to a multiple of {@link #BLOCK_VERTICES}. Pages over 65536 vertices
+	 *           use 32 bit indices, see {@link #supports32BitIndices()}. */
+	public VoxelArena (VertexAttributes attributes, int pageVertices) {
+		this.attributes = attributes;
+		this.pageVertices = roundUp(pageVertices);
+		if (Mesh.needs32BitIndices(this.pageVertices) && !supports32BitIndices()) throw new GdxRuntimeException(
+			"Pages of " + this.pageVertices + " vertices need 32 bit indices, which OpenGL ES 2.0 only has as an extension");
+		this.vertexSize = attributes.vertexSize / 4;
+		int numIndices = this.pageVertices / 4 * 6;
+		quadIndices = new int[numIndices];
+		for (int i = 0, vertex = 0; i < numIndices; i += 6, vertex += 4) {
+			quadIndices[i] = vertex;
+			quadIndices[i + 1] = vertex + 1;
+			quadIndices[i + 2] = vertex + 2;
+			quadIndices[i + 3] = vertex + 2;
+			quadIndices[i + 4] = vertex + 3;
+			quadIndices[i + 5] = vertex;
+		}
+	}
+
+	/** Reserves a range of at least the given number of vertices, adding a page if none has room.
+	 * @return the address of the range */
+	public int allocate (int numVertices) {
+		int count = roundUp(numVertices);
+		if (count > pageVertices)
+			throw new GdxRuntimeException("Range of " + numVertices + " vertices exceeds the page size of " + pageVertices);
+		for (int p = 0; p < pages.size; p++) {
+			int start = allocate(pages.get(p), count);
+			if (start >= 0) return p * pageVertices + start;
+		}
+		Page page = new Page(createMesh(), pageVertices);
+		pages.add(page);
+		return (pages.size - 1) * pageVertices + allocate(page, count);
+	}
+
+	private int allocate (Page page, int count) {
+		IntArray starts = page.freeStarts, counts = page.freeCounts;
+		for (int i = 0; i < starts.size; i++) {
+			int free = counts.get(i);
+			if (free < count) continue;
+			int start = starts.get(i);
+			if (free == count) {
+				starts.removeIndex(i);
+				counts.removeIndex(i);
+			} else {
+				starts.set(i, start + count);
+				counts.set(i, free - count);
+			}
+			usedVertices += count;
+			return start;
+		}
+		return -1;
+	}
+
+	/** Returns a range to its page's free list.
+	 * @param numVertices the size passed to {@link #allocate(int)} */
+	public void free (int address, int numVertices) {
+		Page page = pages.get(address / pageVertices);
+		int start = address % pageVertices, count = roundUp(numVertices);
+		usedVertices -= count;
+		IntArray starts = page.freeStarts, counts = page.freeCounts;
+		int i = 0;
+		while (i < starts.size && starts.get(i) < start)
+			i++;
+		// merge with the following and preceding block where they touch
+		if (i < starts.size && start + count == starts.get(i)) {
+			count += counts.get(i);
+			starts.removeIndex(i);
+			counts.removeIndex(i);
+		}
+		if (i > 0 && starts.get(i - 1) + counts.get(i - 1) == start) {
+			counts.set(i - 1, counts.get(i - 1) + count);
+			return;
+		}
+		starts.insert(i, start);
+		counts.insert(i, count);
+	}
+
+	/** @return whether pages over 65536 vertices can be drawn, needs OpenGL ES 3.0 or the OES_element_index_uint extension */
+	public static boolean supports32BitIndices () {
+		return Gdx.gl30 != null || Gdx.graphics.supportsExtension("GL_OES_element_index_uint");
+	}
+
+	/** @return the number of vertices {@link #allocate(int)} reserves for the given count */
+	public static int roundUp (int numVertices) {
+		return (numVertices + BLOCK_VERTICES - 1) / BLOCK_VERTICES * BLOCK_VERTICES;
+	}
+
+	/** Writes vertices to the start of a range, only this part of the page is uploaded. */
+	public void update (int address, float[] vertices, int numVertices) {
+		getMesh(address).updateVertices(address % pageVertices * vertexSize, vertices, 0, numVertices * vertexSize);
+	}
+
+	/** @return the mesh of the page holding the range */
+	public Mesh getMesh (int address) {
+		return pages.get(address / pageVertices).mesh;
+	}
+
+	/** @return the offset into the mesh's indices of the first quad of the range */
+	public int getIndexOffset (int address) {
+		return address % pageVertices / 4 * 6;
+	}
+
+	private Mesh createMesh () {
+		Mesh mesh = new Mesh(VertexDataType.VertexBufferObjectSubData, false, pageVertices, quadIndices.length,
+			Mesh.needs32BitIndices(pageVertices), attributes);
+		mesh.setIndices(quadIndices);
+		// the whole page is uploaded once, after that ranges are updated in place
+		((Buffer)mesh.getVerticesBuffer(true)).limit(pageVertices * vertexSize);
+		return mesh;
+	}
+
+	public int getNumPages () {
+		return pages.size;
+	}
+
+	/** @return the vertices of all pages */
+	public int getCapacity () {
+		return pages.size * pageVertices;
+	}
+
+	/** @return the vertices reserved by ranges, including the rounding to {@link #BLOCK_VERTICES} */
+	public int getUsedVertices () {
+		return usedVertices;
+	}
+
+	/** @return the used fraction of the capacity */
+	public float getOccupancy () {
+		int capacity = getCapacity();
+		return capacity == 0 ? 0 : usedVertices / (float)capacity;
+	}
+
+	/** @return the number of free blocks over all pages */
+	public int getNumFreeBlocks () {
+		int blocks = 0;
+		for (int p = 0; p < pages.size; p++)
+			blocks += pages.get(p).freeStarts.size;
+		return blocks;
+	}
+
+	/** @return the vertices of the largest range that can be allocated without adding a page */
+	public int getLargestFreeBlock () {
+		int largest = 0;
+		for (int p = 0; p < pages.size; p++) {
+			IntArray counts = pages.get(p).freeCounts;
+			for (int i = 0; i < counts.size; i++)
+				largest = Math.max(largest, counts.get(i));
+		}
+		return largest;
+	}
+
+	/** @return 0 when all free vertices form a single block, approaching 1 as they scatter over many small blocks */
+	public float getFragmentation () {
+		int free = getCapacity() - usedVertices;
+		return free == 0 ? 0 : 1 - getLargestFreeBlock() / (float)free;
+	}
+
+	@Override
+	public void dispose () {
+		for (int p = 0; p < pages.size; p++)
+			pages.get(p).mesh.dispose();
+		pages.clear();
+		usedVertices = 0;
+	}
+}
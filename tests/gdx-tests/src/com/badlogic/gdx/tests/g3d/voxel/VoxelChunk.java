@@ -1,14 +1,25 @@
 package com.badlogic.gdx.tests.g3d.voxel;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
 
+/** A box of voxels, each a type byte (0 is empty) and a 4444 color. Distinct type and color pairs are kept in a per-chunk palette
+ * and every voxel stores its palette index in 1, 2, 4, 8 or 16 bits, growing as colors are added. The meshers unpack the chunk
+ * into dense scratch arrays once per mesh. */
 public class VoxelChunk {
-	public static final int VERTEX_SIZE = 6;
-	public final byte[] voxels;
+	private static final int[] INDEX_BITS = {1, 2, 4, 8, 16};
+
+	public final int numVoxels;
 	public final int width;
 	public final int height;
 	public final int depth;
 	public final Vector3 offset = new Vector3();
+	/** World space bounds of the chunk, kept in sync with {@link #offset} by {@link #setOffset(float, float, float)}. */
+	public final BoundingBox bounds = new BoundingBox();
 	private final int widthTimesHeight;
 	private final int topOffset;
 	private final int bottomOffset;
@@ -16,9 +27,36 @@ public class VoxelChunk {
 	private final int rightOffset;
 	private final int frontOffset;
 	private final int backOffset;
+	/** Which faces of the chunk can see each other through empty voxels, bit {@code a * 6 + b} is set if face a connects to face
+	 * b. All faces are connected until {@link #computeFaceVisibility()} ran. */
+	public long faceVisibility = -1L;
+	/** The layer of voxels just outside each face, indexed like the slices of the greedy mesher: x + z * width for top and
+	 * bottom, y + z * height for left and right, x + y * width for front and back. Faces next to a solid border voxel aren't
+	 * emitted, all zero by default, so every border face is exposed. */
+	public final byte[][] borders = new byte[6][];
+	/** Palette entries, {@code type << 16 | color}. Entry 0 is always the empty voxel. */
+	private int[] palette = new int[2];
+	private int paletteSize = 1;
+	private int indexBits = 1;
+	/** The palette index of every voxel, indexBits each, never straddling two longs. */
+	private long[] indices;
+	/** Dense copies of the voxel types and colors for the meshers, valid while unpacked is set. */
+	private byte[] types;
+	private int[] colors;
+	private boolean unpacked;
+	/** Voxels written by {@link #write(ByteBuffer)} that weren't decoded yet, see {@link #read(ByteBuffer)}. */
+	private ByteBuffer packed;
+	private int[] mask;
+	private boolean[] maskSet;
+	/** Width, height and depth, and the greedy mesher's cell, indexed by axis. */
+	private final int[] dimensions;
+	private final int[] maskPosition = new int[3];
+	private int[] fillQueue;
+	private boolean[] filled;
 
 	public VoxelChunk (int width, int height, int depth) {
-		this.voxels = new byte[width * height * depth];
+		this.numVoxels = width * height * depth;
+		this.indices = new long[(numVoxels * indexBits + 63) / 64];
 		this.width = width;
 		this.height = height;
 		this.depth = depth;
@@ -29,6 +67,110 @@ public class VoxelChunk {
 		this.frontOffset = -width;
 		this.backOffset = width;
 		this.widthTimesHeight = width * height;
+		this.dimensions = new int[] {width, height, depth};
+		borders[0] = new byte[width * depth];
+		borders[1] = new byte[width * depth];
+		borders[2] = new byte[height * depth];
+		borders[3] = new byte[height * depth];
+		borders[4] = new byte[width * height];
+		borders[5] = new byte[width * height];
+	}
+
+	public void setOffset (float x, float y, float z) {
+		offset.set(x, y, z);
+		bounds.inf().ext(x, y, z).ext(x + width, y + height, z + depth);
+	}
+
+	/** @return whether face a can see face b according to the visibility bits, see {@link #faceVisibility} */
+	public static boolean isConnected (long faceVisibility, int a, int b) {
+		return (faceVisibility & (1L << (a * 6 + b))) != 0;
+	}
+
+	/** Flood fills the empty voxels and records which of the six faces each empty region touches. Faces are numbered like the
+	 * quads the meshers emit: 0 top, 1 bottom, 2 left, 3 right, 4 front, 5 back.
+	 * @return the face visibility bits, see {@link #faceVisibility} */
+	public long computeFaceVisibility () {
+		unpack();
+		final byte[] voxels = types;
+		int n = numVoxels;
+		if (fillQueue == null) {
+			fillQueue = new int[n];
+			filled = new boolean[n];
+		}
+		final int[] queue = fillQueue;
+		final boolean[] filled = this.filled;
+		for (int i = 0; i < n; i++)
+			filled[i] = voxels[i] != 0;
+
+		long visibility = 0;
+		for (int start = 0; start < n; start++) {
+			if (filled[start]) continue;
+			int faces = 0, head = 0, tail = 0;
+			queue[tail++] = start;
+			filled[start] = true;
+			while (head < tail) {
+				int i = queue[head++];
+				int y = i / widthTimesHeight, z = (i % widthTimesHeight) / width, x = i % width;
+				if (y == height - 1)
+					faces |= 1;
+				else if (!filled[i + topOffset]) {
+					filled[i + topOffset] = true;
+					queue[tail++] = i + topOffset;
+				}
+				if (y == 0)
+					faces |= 1 << 1;
+				else if (!filled[i + bottomOffset]) {
+					filled[i + bottomOffset] = true;
+					queue[tail++] = i + bottomOffset;
+				}
+				if (x == 0)
+					faces |= 1 << 2;
+				else if (!filled[i + leftOffset]) {
+					filled[i + leftOffset] = true;
+					queue[tail++] = i + leftOffset;
+				}
+				if (x == width - 1)
+					faces |= 1 << 3;
+				else if (!filled[i + rightOffset]) {
+					filled[i + rightOffset] = true;
+					queue[tail++] = i + rightOffset;
+				}
+				if (z == 0)
+					faces |= 1 << 4;
+				else if (!filled[i + frontOffset]) {
+					filled[i + frontOffset] = true;
+					queue[tail++] = i + frontOffset;
+				}
+				if (z == depth - 1)
+					faces |= 1 << 5;
+				else if (!filled[i + backOffset]) {
+					filled[i + backOffset] = true;
+					queue[tail++] = i + backOffset;
+				}
+			}
+			for (int a = 0; a < 6; a++) {
+				if ((faces & (1 << a)) == 0) continue;
+				for (int b = 0; b < 6; b++)
+					if ((faces & (1 << b)) != 0) visibility |= 1L << (a * 6 + b);
+			}
+		}
+		return visibility;
+	}
+
+	/** @return the voxel just outside the given face next to the chunk local voxel, see {@link #borders} */
+	public byte getBorder (int face, int x, int y, int z) {
+		if (face < 2) return borders[face][x + z * width];
+		if (face < 4) return borders[face][y + z * height];
+		return borders[face][x + y * width];
+	}
+
+	/** Clears the {@link #borders}, exposing every face on the chunk's boundary. */
+	public void clearBorders () {
+		for (int face = 0; face < 6; face++) {
+			byte[] border = borders[face];
+			for (int i = 0; i < border.length; i++)
+				border[i] = 0;
+		}
 	}
 
 	public byte get (int x, int y, int z) {
@@ -39,21 +181,242 @@ public class VoxelChunk {
 	}
 
 	public byte getFast (int x, int y, int z) {
-		return voxels[x + z * width + y * widthTimesHeight];
+		if (packed != null) decode();
+		return (byte)(palette[getIndex(x + z * width + y * widthTimesHeight)] >>> 16);
+	}
+
+	/** @return the 4444 color of the voxel, 0 for empty voxels and coordinates outside the chunk */
+	public int getColor (int x, int y, int z) {
+		if (x < 0 || x >= width) return 0;
+		if (y < 0 || y >= height) return 0;
+		if (z < 0 || z >= depth) return 0;
+		if (packed != null) decode();
+		return palette[getIndex(x + z * width + y * widthTimesHeight)] & 0xFFFF;
 	}
 
 	public void set (int x, int y, int z, byte voxel) {
+		set(x, y, z, voxel, 0);
+	}
+
+	public void setFast (int x, int y, int z, byte voxel) {
+		setFast(x, y, z, voxel, 0);
+	}
+
+	public void set (int x, int y, int z, byte voxel, int color) {
 		if (x < 0 || x >= width) return;
 		if (y < 0 || y >= height) return;
 		if (z < 0 || z >= depth) return;
-		setFast(x, y, z, voxel);
+		setFast(x, y, z, voxel, color);
 	}
 
-	public void setFast (int x, int y, int z, byte voxel) {
-		voxels[x + z * width + y * widthTimesHeight] = voxel;
+	/** Sets the type and 4444 color of a voxel, empty voxels drop their color. */
+	public void setFast (int x, int y, int z, byte voxel, int color) {
+		if (packed != null) decode();
+		int entry = voxel == 0 ? 0 : (voxel & 0xFF) << 16 | (color & 0xFFFF);
+		int index = 0;
+		if (entry != 0) {
+			index = paletteSize;
+			for (int i = 1; i < paletteSize; i++) {
+				if (palette[i] == entry) {
+					index = i;
+					break;
+				}
+			}
+			if (index == paletteSize) index = addPaletteEntry(entry);
+		}
+		setIndex(x + z * width + y * widthTimesHeight, index);
+		unpacked = false;
+	}
+
+	/** @return the number of distinct type and color pairs in the palette, including empty */
+	public int getPaletteSize () {
+		if (packed != null) decode();
+		return paletteSize;
+	}
+
+	/** @return the bits each voxel uses for its palette index */
+	public int getIndexBits () {
+		if (packed != null) decode();
+		return indexBits;
+	}
+
+	/** @return the bytes used by the palette and the packed indices */
+	public int getMemoryUsage () {
+		if (packed != null) decode();
+		return palette.length * 4 + indices.length * 8;
+	}
+
+	private int getIndex (int i) {
+		int bit = i * indexBits;
+		return (int)(indices[bit >>> 6] >>> (bit & 63)) & ((1 << indexBits) - 1);
+	}
+
+	private void setIndex (int i, int index) {
+		int bit = i * indexBits;
+		long mask = (long)((1 << indexBits) - 1) << (bit & 63);
+		indices[bit >>> 6] = indices[bit >>> 6] & ~mask | (long)index << (bit & 63);
+	}
+
+	/** Appends an entry. Unused entries are dropped before the palette array grows or the indices widen.
+	 * @return the index of the entry */
+	private int addPaletteEntry (int entry) {
+		if (paletteSize == 1 << indexBits) {
+			compactPalette();
+			if (paletteSize == 1 << indexBits) {
+				if (indexBits == 16) throw new IllegalStateException("Palette is full");
+				int bits = indexBits;
+				for (int i = 0; i < INDEX_BITS.length; i++)
+					if (INDEX_BITS[i] > indexBits) {
+						bits = INDEX_BITS[i];
+						break;
+					}
+				repack(bits, null);
+			}
+		}
+		if (paletteSize == palette.length) {
+			compactPalette();
+			if (paletteSize > palette.length * 3 / 4) {
+				int[] newPalette = new int[Math.min(palette.length * 2, 1 << 16)];
+				System.arraycopy(palette, 0, newPalette, 0, paletteSize);
+				palette = newPalette;
+			}
+		}
+		palette[paletteSize] = entry;
+		return paletteSize++;
+	}
+
+	/** Removes the palette entries no voxel refers to anymore. */
+	private void compactPalette () {
+		int[] remap = new int[paletteSize];
+		for (int i = 0; i < numVoxels; i++)
+			remap[getIndex(i)] = 1;
+		remap[0] = 1;
+		int used = 0;
+		for (int i = 0; i < paletteSize; i++) {
+			if (remap[i] == 0) continue;
+			palette[used] = palette[i];
+			remap[i] = used++;
+		}
+		if (used == paletteSize) return;
+		paletteSize = used;
+		repack(indexBits, remap);
+	}
+
+	/** Rewrites the indices with the given width, optionally mapping every index through remap. */
+	private void repack (int bits, int[] remap) {
+		long[] old = indices;
+		int oldBits = indexBits;
+		long oldMask = (1L << oldBits) - 1;
+		indices = bits == oldBits ? old : new long[(numVoxels * bits + 63) / 64];
+		indexBits = bits;
+		for (int i = 0; i < numVoxels; i++) {
+			int bit = i * oldBits;
+			int index = (int)((old[bit >>> 6] >>> (bit & 63)) & oldMask);
+			setIndex(i, remap == null ? index : remap[index]);
+		}
+	}
+
+	/** Copies the voxels of another chunk with the same dimensions, used to snapshot a chunk for meshing. */
+	public void set (VoxelChunk other) {
+		if (other.packed != null) other.decode();
+		packed = null;
+		if (palette.length < other.paletteSize) palette = new int[other.palette.length];
+		System.arraycopy(other.palette, 0, palette, 0, other.paletteSize);
+		paletteSize = other.paletteSize;
+		if (indices.length != other.indices.length) indices = new long[other.indices.length];
+		System.arraycopy(other.indices, 0, indices, 0, indices.length);
+		indexBits = other.indexBits;
+		unpacked = false;
+	}
+
+	/** @return the bytes {@link #write(ByteBuffer)} writes */
+	public int getPackedSize () {
+		if (packed != null) decode();
+		return 8 + indices.length * 8 + paletteSize * 4;
 	}
 
-	public int calculateVertices (float[] vertices, int[][][] voxelColors) {
+	/** Writes the palette size, the index bits, the packed indices and the palette at the buffer's position. */
+	public void write (ByteBuffer buffer) {
+		// decoded first, the buffer read from may belong to the file being overwritten
+		if (packed != null) decode();
+		buffer.putInt(paletteSize);
+		buffer.putInt(indexBits);
+		buffer.asLongBuffer().put(indices);
+		buffer.position(buffer.position() + indices.length * 8);
+		for (int i = 0; i < paletteSize; i++)
+			buffer.putInt(palette[i]);
+	}
+
+	/** @return whether the bytes at offset are a chunk of this many voxels as written by {@link #write(ByteBuffer)}, with every
+	 *         index within the palette */
+	static boolean isValidPacked (ByteBuffer buffer, int offset, int length, int numVoxels) {
+		if (length < 8 || offset < 0 || offset > buffer.limit() - length) return false;
+		int paletteSize = buffer.getInt(offset), indexBits = buffer.getInt(offset + 4);
+		if (Integer.bitCount(indexBits) != 1 || indexBits > 16 || paletteSize < 1 || paletteSize > 1 << indexBits
+			|| length != 8 + (numVoxels * indexBits + 63) / 64 * 8 + paletteSize * 4) return false;
+		if (paletteSize == 1 << indexBits) return true;
+		// the index bits divide 64, an index never straddles two longs
+		long mask = (1L << indexBits) - 1, word = 0;
+		for (int i = 0; i < numVoxels; i++) {
+			int bit = i * indexBits;
+			if ((bit & 63) == 0) word = buffer.getLong(offset + 8 + (bit >>> 6) * 8);
+			if (((word >>> (bit & 63)) & mask) >= paletteSize) return false;
+		}
+		return true;
+	}
+
+	/** Replaces the voxels with ones written by {@link #write(ByteBuffer)}. The buffer is kept and only decoded when the voxels
+	 * are first accessed, it must hold exactly the written bytes, be in the order they were written in and be validated by the
+	 * caller, see {@link VoxelSnapshot}.
+	 * @param buffer null empties the chunk */
+	public void read (ByteBuffer buffer) {
+		packed = buffer;
+		unpacked = false;
+		faceVisibility = -1L;
+		if (buffer == null) {
+			paletteSize = 1;
+			Arrays.fill(indices, 0);
+		}
+	}
+
+	private void decode () {
+		ByteBuffer buffer = packed;
+		packed = null;
+		int size = buffer.getInt(0), bits = buffer.getInt(4);
+		int longs = (numVoxels * bits + 63) / 64;
+		if (indices.length != longs) indices = new long[longs];
+		buffer.position(8);
+		buffer.asLongBuffer().get(indices);
+		if (palette.length < size) palette = new int[Math.max(MathUtils.nextPowerOfTwo(size), 2)];
+		for (int i = 0, p = 8 + longs * 8; i < size; i++, p += 4)
+			palette[i] = buffer.getInt(p);
+		paletteSize = size;
+		indexBits = bits;
+	}
+
+	/** Decodes the voxels into the dense arrays the meshers work on. */
+	private void unpack () {
+		if (packed != null) decode();
+		if (unpacked) return;
+		if (types == null) {
+			types = new byte[numVoxels];
+			colors = new int[numVoxels];
+		}
+		for (int i = 0; i < numVoxels; i++) {
+			int entry = palette[getIndex(i)];
+			types[i] = (byte)(entry >>> 16);
+			colors[i] = entry & 0xFFFF;
+		}
+		unpacked = true;
+	}
+
+	/** Emits one quad per exposed voxel face, faces on the boundary are tested against the {@link #borders}. This is the
+	 * reference mesher, see {@link #calculateVerticesGreedy(VoxelVertexFormat, float[])}.
+	 * @return the number of vertices written */
+	public int calculateVertices (VoxelVertexFormat format, float[] vertices) {
+		unpack();
+		final byte[] voxels = types;
+		final int[] colors = this.colors;
 		int i = 0;
 		int vertexOffset = 0;
 		for (int y = 0; y < height; y++) {
@@ -62,354 +425,205 @@ public class VoxelChunk {
 					byte voxel = voxels[i];
 					if (voxel == 0) continue;
 
-					int globalX = (int)offset.x + x;
-					int globalY = (int)offset.y + y;
-					int globalZ = (int)offset.z + z;
-					int color = voxelColors[globalX][globalY][globalZ];
-
+					int color = colors[i];
 
 					if (y < height - 1) {
-						if (voxels[i + topOffset] == 0) vertexOffset = createTop(offset, x, y, z, vertices, vertexOffset, color);
-					} else {
-						vertexOffset = createTop(offset, x, y, z, vertices, vertexOffset, color);
+						if (voxels[i + topOffset] == 0) vertexOffset = createTop(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
+					} else if (getBorder(0, x, y, z) == 0) {
+						vertexOffset = createTop(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
 					}
 					if (y > 0) {
-						if (voxels[i + bottomOffset] == 0) vertexOffset = createBottom(offset, x, y, z, vertices, vertexOffset, color);
-					} else {
-						vertexOffset = createBottom(offset, x, y, z, vertices, vertexOffset, color);
+						if (voxels[i + bottomOffset] == 0) vertexOffset = createBottom(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
+					} else if (getBorder(1, x, y, z) == 0) {
+						vertexOffset = createBottom(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
 					}
 					if (x > 0) {
-						if (voxels[i + leftOffset] == 0) vertexOffset = createLeft(offset, x, y, z, vertices, vertexOffset, color);
-					} else {
-						vertexOffset = createLeft(offset, x, y, z, vertices, vertexOffset, color);
+						if (voxels[i + leftOffset] == 0) vertexOffset = createLeft(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
+					} else if (getBorder(2, x, y, z) == 0) {
+						vertexOffset = createLeft(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
 					}
 					if (x < width - 1) {
-						if (voxels[i + rightOffset] == 0) vertexOffset = createRight(offset, x, y, z, vertices, vertexOffset, color);
-					} else {
-						vertexOffset = createRight(offset, x, y, z, vertices, vertexOffset, color);
+						if (voxels[i + rightOffset] == 0) vertexOffset = createRight(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
+					} else if (getBorder(3, x, y, z) == 0) {
+						vertexOffset = createRight(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
 					}
 					if (z > 0) {
-						if (voxels[i + frontOffset] == 0) vertexOffset = createFront(offset, x, y, z, vertices, vertexOffset, color);
-					} else {
-						vertexOffset = createFront(offset, x, y, z, vertices, vertexOffset, color);
+						if (voxels[i + frontOffset] == 0) vertexOffset = createFront(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
+					} else if (getBorder(4, x, y, z) == 0) {
+						vertexOffset = createFront(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
 					}
 					if (z < depth - 1) {
-						if (voxels[i + backOffset] == 0) vertexOffset = createBack(offset, x, y, z, vertices, vertexOffset, color);
-					} else {
-						vertexOffset = createBack(offset, x, y, z, vertices, vertexOffset, color);
+						if (voxels[i + backOffset] == 0) vertexOffset = createBack(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
+					} else if (getBorder(5, x, y, z) == 0) {
+						vertexOffset = createBack(format, offset, x, y, z, 1, 1, vertices, vertexOffset, color);
 					}
 				}
 			}
 		}
-		return vertexOffset ;
-	}
-
-	public static int createTop (Vector3 offset, int x, int y, int z, float[] vertices, int vertexOffset, int color) {
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 1;
-		vertices[vertexOffset++] = 0;
-
-		float r = ((color >> 12) & 0xF) / 15f;
-		float g = ((color >> 8) & 0xF) / 15f;
-		float b = ((color >> 4)  & 0xF) / 15f;
-		float a = (color & 0xF) / 15f;
-
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-		return vertexOffset;
+		return vertexOffset / format.vertexSize;
 	}
 
-	public static int createBottom (Vector3 offset, int x, int y, int z, float[] vertices, int vertexOffset, int color) {
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = -1;
-		vertices[vertexOffset++] = 0;
-		float r = ((color >> 12) & 0xF) / 15f;
-		float g = ((color >> 8) & 0xF) / 15f;
-		float b = ((color >> 4)  & 0xF) / 15f;
-		float a = (color & 0xF) / 15f;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = -1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = -1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = -1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-		return vertexOffset;
+	/** Emits the same surface as {@link #calculateVertices(VoxelVertexFormat, float[])}, but merges coplanar faces of the same
+	 * color into maximal rectangles, slice by slice, for each of the six face directions.
+	 * @return the number of vertices written */
+	public int calculateVerticesGreedy (VoxelVertexFormat format, float[] vertices) {
+		unpack();
+		int maxSlice = Math.max(width * depth, Math.max(height * depth, width * height));
+		if (mask == null || mask.length < maxSlice) {
+			mask = new int[maxSlice];
+			maskSet = new boolean[maxSlice];
+		}
+		int vertexOffset = 0;
+		for (int face = 0; face < 6; face++)
+			vertexOffset = greedyFace(format, face, vertices, vertexOffset);
+		return vertexOffset / format.vertexSize;
 	}
 
-	public static int createLeft (Vector3 offset, int x, int y, int z, float[] vertices, int vertexOffset, int color) {
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = -1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		float r = ((color >> 12) & 0xF) / 15f;
-		float g = ((color >> 8) & 0xF) / 15f;
-		float b = ((color >> 4)  & 0xF) / 15f;
-		float a = (color & 0xF) / 15f;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = -1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = -1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = -1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
+	/** @param face 0 top, 1 bottom, 2 left, 3 right, 4 front, 5 back */
+	private int greedyFace (VoxelVertexFormat format, int face, float[] vertices, int vertexOffset) {
+		// d is the axis the face points along, u and v span the slice
+		int d, u, v;
+		if (face < 2) {
+			d = 1;
+			u = 0;
+			v = 2;
+		} else if (face < 4) {
+			d = 0;
+			u = 1;
+			v = 2;
+		} else {
+			d = 2;
+			u = 0;
+			v = 1;
+		}
+		int step = face == 0 || face == 3 || face == 5 ? 1 : -1;
+		final int[] size = dimensions;
+		final int[] pos = maskPosition;
+		int sizeU = size[u], sizeV = size[v];
+		final int[] mask = this.mask;
+		final boolean[] maskSet = this.maskSet;
+
+		for (int slice = 0; slice < size[d]; slice++) {
+			pos[d] = slice;
+			boolean any = false;
+			for (int j = 0, n = 0; j < sizeV; j++) {
+				pos[v] = j;
+				for (int i = 0; i < sizeU; i++, n++) {
+					pos[u] = i;
+					maskSet[n] = false;
+					int x = pos[0], y = pos[1], z = pos[2];
+					if (types[x + z * width + y * widthTimesHeight] == 0) continue;
+					int neighbor = slice + step;
+					if (neighbor >= 0 && neighbor < size[d]) {
+						pos[d] = neighbor;
+						boolean hidden = types[pos[0] + pos[2] * width + pos[1] * widthTimesHeight] != 0;
+						pos[d] = slice;
+						if (hidden) continue;
+					} else if (getBorder(face, x, y, z) != 0) continue;
+					mask[n] = colors[x + z * width + y * widthTimesHeight];
+					maskSet[n] = true;
+					any = true;
+				}
+			}
+			if (!any) continue;
+
+			for (int j = 0, n = 0; j < sizeV; j++) {
+				for (int i = 0; i < sizeU; n++) {
+					if (!maskSet[n]) {
+						i++;
+						continue;
+					}
+					int color = mask[n];
+					int w = 1;
+					while (i + w < sizeU && maskSet[n + w] && mask[n + w] == color)
+						w++;
+					int h = 1;
+					outer:
+					for (; j + h < sizeV; h++) {
+						int row = n + h * sizeU;
+						for (int k = 0; k < w; k++)
+							if (!maskSet[row + k] || mask[row + k] != color) break outer;
+					}
+					for (int l = 0; l < h; l++)
+						for (int k = 0; k < w; k++)
+							maskSet[n + l * sizeU + k] = false;
+
+					pos[u] = i;
+					pos[v] = j;
+					int x = pos[0], y = pos[1], z = pos[2];
+					switch (face) {
+					case 0:
+						vertexOffset = createTop(format, offset, x, y, z, w, h, vertices, vertexOffset, color);
+						break;
+					case 1:
+						vertexOffset = createBottom(format, offset, x, y, z, w, h, vertices, vertexOffset, color);
+						break;
+					case 2:
+						vertexOffset = createLeft(format, offset, x, y, z, w, h, vertices, vertexOffset, color);
+						break;
+					case 3:
+						vertexOffset = createRight(format, offset, x, y, z, w, h, vertices, vertexOffset, color);
+						break;
+					case 4:
+						vertexOffset = createFront(format, offset, x, y, z, w, h, vertices, vertexOffset, color);
+						break;
+					default:
+						vertexOffset = createBack(format, offset, x, y, z, w, h, vertices, vertexOffset, color);
+						break;
+					}
+					i += w;
+					n += w - 1;
+				}
+			}
+		}
 		return vertexOffset;
 	}
 
-	public static int createRight (Vector3 offset, int x, int y, int z, float[] vertices, int vertexOffset, int color) {
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		float r = ((color >> 12) & 0xF) / 15f;
-		float g = ((color >> 8) & 0xF) / 15f;
-		float b = ((color >> 4)  & 0xF) / 15f;
-		float a = (color & 0xF) / 15f;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-		return vertexOffset;
+	public static int createTop (VoxelVertexFormat format, Vector3 offset, int x, int y, int z, int width, int depth,
+		float[] vertices, int vertexOffset, int color) {
+		vertexOffset = format.put(vertices, vertexOffset, offset, x, y + 1, z, 0, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x + width, y + 1, z, 0, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x + width, y + 1, z + depth, 0, color);
+		return format.put(vertices, vertexOffset, offset, x, y + 1, z + depth, 0, color);
 	}
 
-	public static int createFront (Vector3 offset, int x, int y, int z, float[] vertices, int vertexOffset, int color) {
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 1;
-		float r = ((color >> 12) & 0xF) / 15f;
-		float g = ((color >> 8) & 0xF) / 15f;
-		float b = ((color >> 4)  & 0xF) / 15f;
-		float a = (color & 0xF) / 15f;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 1;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 1;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 1;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-		return vertexOffset;
+	public static int createBottom (VoxelVertexFormat format, Vector3 offset, int x, int y, int z, int width, int depth,
+		float[] vertices, int vertexOffset, int color) {
+		vertexOffset = format.put(vertices, vertexOffset, offset, x, y, z, 1, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x, y, z + depth, 1, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x + width, y, z + depth, 1, color);
+		return format.put(vertices, vertexOffset, offset, x + width, y, z, 1, color);
 	}
 
-	public static int createBack (Vector3 offset, int x, int y, int z, float[] vertices, int vertexOffset, int color) {
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = -1;
-		float r = ((color >> 12) & 0xF) / 15f;
-		float g = ((color >> 8) & 0xF) / 15f;
-		float b = ((color >> 4)  & 0xF) / 15f;
-		float a = (color & 0xF) / 15f;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = -1;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y + 1;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = -1;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-
-		vertices[vertexOffset++] = offset.x + x + 1;
-		vertices[vertexOffset++] = offset.y + y;
-		vertices[vertexOffset++] = offset.z + z + 1;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = 0;
-		vertices[vertexOffset++] = -1;
-		vertices[vertexOffset++] = r;
-		vertices[vertexOffset++] = g;
-		vertices[vertexOffset++] = b;
-		vertices[vertexOffset++] = a;
-		return vertexOffset;
+	public static int createLeft (VoxelVertexFormat format, Vector3 offset, int x, int y, int z, int height, int depth,
+		float[] vertices, int vertexOffset, int color) {
+		vertexOffset = format.put(vertices, vertexOffset, offset, x, y, z, 2, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x, y + height, z, 2, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x, y + height, z + depth, 2, color);
+		return format.put(vertices, vertexOffset, offset, x, y, z + depth, 2, color);
+	}
+
+	public static int createRight (VoxelVertexFormat format, Vector3 offset, int x, int y, int z, int height, int depth,
+		float[] vertices, int vertexOffset, int color) {
+		vertexOffset = format.put(vertices, vertexOffset, offset, x + 1, y, z, 3, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x + 1, y, z + depth, 3, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x + 1, y + height, z + depth, 3, color);
+		return format.put(vertices, vertexOffset, offset, x + 1, y + height, z, 3, color);
+	}
+
+	public static int createFront (VoxelVertexFormat format, Vector3 offset, int x, int y, int z, int width, int height,
+		float[] vertices, int vertexOffset, int color) {
+		vertexOffset = format.put(vertices, vertexOffset, offset, x, y, z, 4, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x + width, y, z, 4, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x + width, y + height, z, 4, color);
+		return format.put(vertices, vertexOffset, offset, x, y + height, z, 4, color);
+	}
+
+	public static int createBack (VoxelVertexFormat format, Vector3 offset, int x, int y, int z, int width, int height,
+		float[] vertices, int vertexOffset, int color) {
+		vertexOffset = format.put(vertices, vertexOffset, offset, x, y, z + 1, 5, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x, y + height, z + 1, 5, color);
+		vertexOffset = format.put(vertices, vertexOffset, offset, x + width, y + height, z + 1, 5, color);
+		return format.put(vertices, vertexOffset, offset, x + width, y, z + 1, 5, color);
 	}
 }
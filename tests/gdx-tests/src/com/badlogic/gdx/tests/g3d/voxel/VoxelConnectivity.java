@@ -0,0 +1,239 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.physics.bullet.collision.btBoxShape;
+import com.badlogic.gdx.physics.bullet.collision.btCompoundShape;
+import com.badlogic.gdx.physics.bullet.dynamics.btRigidBody;
+import com.badlogic.gdx.physics.bullet.linearmath.btDefaultMotionState;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntSet;
+
+/** Detects voxels of a {@link VoxelWorld} that lost their connection to the ground. Every removed voxel is recorded, on
+ * {@link #update()} a flood fill over the face neighbors starts at each solid neighbor of a removed voxel. A fill that reaches
+ * the {@link #groundLayer}, a voxel already found supported or {@link #maxSearch} voxels stops, everything it visited is
+ * supported. A fill that runs out of voxels found an island: it's removed from the grid and falls as one rigid body whose
+ * compound shape has a box per voxel, single voxels become {@link VoxelDebris}. Only the surroundings of edits are searched, the
+ * cost doesn't depend on the size of the world. */
+public class VoxelConnectivity implements Disposable {
+	/** A detached group of voxels simulated as one body. */
+	public static class Island implements Disposable {
+		public final btRigidBody body;
+		final btCompoundShape shape;
+		final btDefaultMotionState motionState;
+		/** Center of every voxel relative to the body, three floats per voxel. */
+		public final FloatArray offsets;
+		/** 4444 color of every voxel. */
+		public final IntArray colors;
+
+		Island (btRigidBody body, btCompoundShape shape, btDefaultMotionState motionState, FloatArray offsets, IntArray colors) {
+			this.body = body;
+			this.shape = shape;
+			this.motionState = motionState;
+			this.offsets = offsets;
+			this.colors = colors;
+		}
+
+		public int size () {
+			return colors.size;
+		}
+
+		@Override
+		public void dispose () {
+			body.dispose();
+			shape.dispose();
+			motionState.dispose();
+		}
+	}
+
+	/** Whether removed voxels are tracked, changing it drops the voxels removed so far. */
+	public boolean enabled = true;
+	/** Highest layer of voxels that rests on the ground, the ground body of the world ends at the bottom of layer 1. */
+	public int groundLayer = 1;
+	/** Voxels a single fill visits before it gives up and treats them as supported, bounds the work per removed voxel. */
+	public int maxSearch = 4096;
+	/** Mass of a single voxel of an island. */
+	public float voxelMass = 1f;
+	/** Maximum number of island bodies, detaching more removes the oldest. */
+	public int maxIslands = 64;
+
+	private final VoxelWorld world;
+	private final btBoxShape voxelShape;
+	private final Array<Island> islands = new Array<Island>();
+	/** Voxels removed since the last update, as world cell indices. */
+	private final IntArray removed = new IntArray();
+	/** Voxels found connected to the ground during the current update. */
+	private final IntSet supported = new IntSet();
+	private final IntSet visited = new IntSet();
+	/** Voxels of the current fill in the order they were reached, also its queue. */
+	private final IntArray fill = new IntArray();
+	private boolean detaching;
+	private final Matrix4 tmpTransform = new Matrix4();
+	private final Vector3 tmpVector = new Vector3();
+
+	public VoxelConnectivity (VoxelWorld world) {
+		this.world = world;
+		float halfExtent = 0.5f * VoxelWorld.WORLD_SCALE;
+		voxelShape = new btBoxShape(tmpVector.set(halfExtent, halfExtent, halfExtent));
+		voxelShape.obtain();
+	}
+
+	/** Records a solid voxel that was removed from the grid, called by the world. */
+	void voxelRemoved (int x, int y, int z) {
+		if (!enabled || detaching) return;
+		removed.add(cell(x, y, z));
+	}
+
+	/** Detaches the islands left by the voxels removed since the last call. Must be called on the thread that edits the world. */
+	public void update () {
+		if (!enabled) {
+			removed.clear();
+			return;
+		}
+		if (removed.size == 0) return;
+		int voxelsX = world.voxelsX, voxelsZ = world.voxelsZ, layer = voxelsX * voxelsZ;
+		for (int i = 0; i < removed.size; i++) {
+			int cell = removed.get(i);
+			int x = cell % voxelsX, z = cell / voxelsX % voxelsZ, y = cell / layer;
+			search(x + 1, y, z);
+			search(x - 1, y, z);
+			search(x, y + 1, z);
+			search(x, y - 1, z);
+			search(x, y, z + 1);
+			search(x, y, z - 1);
+		}
+		removed.clear();
+		supported.clear();
+	}
+
+	private void search (int x, int y, int z) {
+		if (!isSolid(x, y, z)) return;
+		int start = cell(x, y, z);
+		if (supported.contains(start)) return;
+
+		int voxelsX = world.voxelsX, voxelsZ = world.voxelsZ, layer = voxelsX * voxelsZ;
+		fill.clear();
+		visited.clear();
+		fill.add(start);
+		visited.add(start);
+		boolean grounded = false;
+		for (int head = 0; head < fill.size; head++) {
+			int cell = fill.get(head);
+			int cx = cell % voxelsX, cz = cell / voxelsX % voxelsZ, cy = cell / layer;
+			if (cy <= groundLayer || supported.contains(cell) || fill.size >= maxSearch) {
+				grounded = true;
+				break;
+			}
+			visit(cx + 1, cy, cz);
+			visit(cx - 1, cy, cz);
+			visit(cx, cy + 1, cz);
+			visit(cx, cy - 1, cz);
+			visit(cx, cy, cz + 1);
+			visit(cx, cy, cz - 1);
+		}
+
+		if (grounded) {
+			// everything reached is connected to the start, and so to the ground
+			for (int i = 0; i < fill.size; i++)
+				supported.add(fill.get(i));
+		} else
+			detach();
+	}
+
+	private void visit (int x, int y, int z) {
+		if (!isSolid(x, y, z)) return;
+		int cell = cell(x, y, z);
+		if (visited.add(cell)) fill.add(cell);
+	}
+
+	/** Removes the voxels of the current fill from the grid and adds them as one body. */
+	private void detach () {
+		int voxelsX = world.voxelsX, voxelsZ = world.voxelsZ, layer = voxelsX * voxelsZ;
+		detaching = true;
+		if (fill.size == 1) {
+			int cell = fill.get(0);
+			world.breakOff(cell % voxelsX, cell / layer, cell / voxelsX % voxelsZ);
+			detaching = false;
+			return;
+		}
+
+		// the body's origin is the center of mass, the voxels all weigh the same
+		float cx = 0, cy = 0, cz = 0;
+		for (int i = 0; i < fill.size; i++) {
+			int cell = fill.get(i);
+			cx += cell % voxelsX + 0.5f;
+			cy += cell / layer + 0.5f;
+			cz += cell / voxelsX % voxelsZ + 0.5f;
+		}
+		cx /= fill.size;
+		cy /= fill.size;
+		cz /= fill.size;
+
+		btCompoundShape shape = new btCompoundShape();
+		FloatArray offsets = new FloatArray(fill.size * 3);
+		IntArray colors = new IntArray(fill.size);
+		// diagonal inertia tensor of the voxels as solid cubes around the center of mass
+		float scale = VoxelWorld.WORLD_SCALE, cubeInertia = voxelMass * scale * scale / 6f;
+		float ix = 0, iy = 0, iz = 0;
+		world.beginEdit();
+		for (int i = 0; i < fill.size; i++) {
+			int cell = fill.get(i);
+			int x = cell % voxelsX, y = cell / layer, z = cell / voxelsX % voxelsZ;
+			float ox = (x + 0.5f - cx) * scale, oy = (y + 0.5f - cy) * scale, oz = (z + 0.5f - cz) * scale;
+			shape.addChildShape(tmpTransform.setToTranslation(ox, oy, oz), voxelShape);
+			offsets.add(ox, oy, oz);
+			colors.add(world.getColor(x, y, z));
+			ix += voxelMass * (oy * oy + oz * oz) + cubeInertia;
+			iy += voxelMass * (ox * ox + oz * oz) + cubeInertia;
+			iz += voxelMass * (ox * ox + oy * oy) + cubeInertia;
+			world.setVoxelWithColor(x, y, z, (byte)0, 0);
+		}
+		world.commitEdit();
+		detaching = false;
+
+		if (islands.size >= maxIslands) remove(islands.first());
+		float mass = voxelMass * fill.size;
+		btDefaultMotionState motionState = new btDefaultMotionState(tmpTransform.setToTranslation(cx * scale, cy * scale, cz * scale));
+		btRigidBody.btRigidBodyConstructionInfo info = new btRigidBody.btRigidBodyConstructionInfo(mass, motionState, shape,
+			tmpVector.set(ix, iy, iz));
+		btRigidBody body = new btRigidBody(info);
+		info.dispose();
+		body.setUserValue(VoxelWorld.ISLAND_MARKER);
+		body.setRestitution(0.3f);
+		body.setFriction(0.7f);
+		islands.add(new Island(body, shape, motionState, offsets, colors));
+		world.addBody(body, VoxelWorld.VOXEL_GROUP, VoxelWorld.PROJECTILE_MASK);
+	}
+
+	/** Removes an island body from the world and disposes it once the physics is done with it. */
+	public void remove (Island island) {
+		if (!islands.removeValue(island, true)) return;
+		world.removeBody(island.body);
+		world.disposeLater(island);
+	}
+
+	/** @return the island bodies, oldest first */
+	public Array<Island> getIslands () {
+		return islands;
+	}
+
+	private boolean isSolid (int x, int y, int z) {
+		return x >= 0 && x < world.voxelsX && y >= 0 && y < world.voxelsY && z >= 0 && z < world.voxelsZ
+			&& world.get(x, y, z) != 0;
+	}
+
+	private int cell (int x, int y, int z) {
+		return x + z * world.voxelsX + y * world.voxelsX * world.voxelsZ;
+	}
+
+	@Override
+	public void dispose () {
+		while (islands.size > 0)
+			remove(islands.peek());
+		removed.clear();
+		voxelShape.release();
+	}
+}
@@ -0,0 +1,149 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.physics.bullet.collision.Collision;
+import com.badlogic.gdx.physics.bullet.collision.btBoxShape;
+import com.badlogic.gdx.physics.bullet.dynamics.btRigidBody;
+import com.badlogic.gdx.physics.bullet.linearmath.btDefaultMotionState;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+/** Voxels broken off a {@link VoxelWorld} as dynamic bodies. All debris shares one box shape, bodies and motion states are
+ * pooled and reused, so breaking voxels allocates nothing once the pool is warm. Debris deactivates like any other body and is
+ * retired once it slept for {@link #settleTime}: it is put back into the grid at the cell it came to rest in when that cell is
+ * free, otherwise it is despawned. Debris that lived for {@link #lifetime} without settling may still be falling or rolling and
+ * is despawned too. At most {@link #maxDebris} bodies are live, spawning more despawns the oldest, which is never put back. */
+public class VoxelDebris implements Disposable {
+	static class Debris {
+		final btRigidBody body;
+		final btDefaultMotionState motionState;
+		byte type;
+		int color;
+		/** Seconds since the debris was spawned, and since it fell asleep or -1 while it's awake. */
+		float age, sleepTime;
+
+		Debris (btRigidBody body, btDefaultMotionState motionState) {
+			this.body = body;
+			this.motionState = motionState;
+		}
+	}
+
+	/** Maximum number of live debris bodies. */
+	public int maxDebris = 512;
+	/** Seconds debris has to sleep before it's retired. */
+	public float settleTime = 2f;
+	/** Seconds after which debris that never came to rest is despawned. */
+	public float lifetime = 30f;
+	/** Whether settled debris is put back into the grid, if false it's despawned. */
+	public boolean revoxelize = true;
+
+	private final VoxelWorld world;
+	private final btBoxShape shape;
+	private final float mass = 1f;
+	private final Vector3 localInertia = new Vector3();
+	/** Live debris, oldest first. */
+	final Array<Debris> live = new Array<Debris>();
+	private final Array<Debris> free = new Array<Debris>();
+	private final Matrix4 tmpTransform = new Matrix4();
+	private final Vector3 tmpVector = new Vector3();
+
+	public VoxelDebris (VoxelWorld world) {
+		this.world = world;
+		float halfExtent = 0.5f * VoxelWorld.WORLD_SCALE;
+		shape = new btBoxShape(tmpVector.set(halfExtent, halfExtent, halfExtent));
+		shape.obtain();
+		shape.calculateLocalInertia(mass, localInertia);
+	}
+
+	/** Adds a body for a voxel at rest at the center of the given cell, the voxel has to be removed from the grid already. Must be
+	 * called on the thread that edits the world.
+	 * @return the body, valid until the debris is retired */
+	btRigidBody spawn (int x, int y, int z, byte type, int color) {
+		if (live.size >= maxDebris) retire(0, false);
+		float scale = VoxelWorld.WORLD_SCALE;
+		float cx = (x + 0.5f) * scale, cy = (y + 0.5f) * scale, cz = (z + 0.5f) * scale;
+
+		Debris debris;
+		if (free.size > 0) {
+			// the physics thread may not have removed the body yet, it's reset in order with the other changes
+			debris = free.pop();
+			world.placeBody(debris.body, cx, cy, cz);
+		} else {
+			// the body starts at the motion state's transform, which is also what is drawn until the first step
+			btDefaultMotionState motionState = new btDefaultMotionState(tmpTransform.setToTranslation(cx, cy, cz));
+			btRigidBody.btRigidBodyConstructionInfo info = new btRigidBody.btRigidBodyConstructionInfo(mass, motionState, shape,
+				localInertia);
+			btRigidBody body = new btRigidBody(info);
+			info.dispose();
+			body.setUserValue(VoxelWorld.VOXEL_MARKER);
+			body.setRestitution(0.3f);
+			body.setFriction(0.7f);
+			debris = new Debris(body, motionState);
+		}
+		debris.type = type;
+		debris.color = color;
+		debris.age = 0;
+		debris.sleepTime = -1;
+		debris.body.setUserPointer(VoxelWorld.encodeVoxelData(color, x, y, z));
+		world.addBody(debris.body, VoxelWorld.VOXEL_GROUP, VoxelWorld.PROJECTILE_MASK);
+		live.add(debris);
+		return debris.body;
+	}
+
+	/** Retires debris that settled or outlived {@link #lifetime}. Must be called on the thread that edits the world, the
+	 * activation states and rest positions are read from the world's snapshot while the physics thread runs. */
+	void update (float delta) {
+		for (int i = 0; i < live.size; i++) {
+			Debris debris = live.get(i);
+			debris.age += delta;
+			if (world.getActivationState(debris.body) == Collision.ISLAND_SLEEPING)
+				debris.sleepTime = debris.sleepTime < 0 ? 0 : debris.sleepTime + delta;
+			else
+				debris.sleepTime = -1;
+			boolean settled = debris.sleepTime >= settleTime;
+			if (settled || debris.age >= lifetime) retire(i--, revoxelize && settled);
+		}
+	}
+
+	/** Removes live debris from the physics world and returns it to the pool.
+	 * @param revoxelize whether to put its voxel back into the grid if the cell it rests in is free */
+	private void retire (int index, boolean revoxelize) {
+		Debris debris = live.removeIndex(index);
+		if (revoxelize) {
+			world.getRenderTransform(debris.body, tmpTransform);
+			tmpTransform.getTranslation(tmpVector).scl(1f / VoxelWorld.WORLD_SCALE);
+			int x = MathUtils.floor(tmpVector.x), y = MathUtils.floor(tmpVector.y), z = MathUtils.floor(tmpVector.z);
+			if (x >= 0 && x < world.voxelsX && y >= 0 && y < world.voxelsY && z >= 0 && z < world.voxelsZ && world.get(x, y, z) == 0)
+				world.setVoxelWithColor(x, y, z, debris.type, debris.color);
+		}
+		world.removeBody(debris.body);
+		free.add(debris);
+	}
+
+	/** @return the number of debris bodies in the physics world */
+	public int getLiveCount () {
+		return live.size;
+	}
+
+	/** @return the number of debris bodies waiting in the pool */
+	public int getFreeCount () {
+		return free.size;
+	}
+
+	@Override
+	public void dispose () {
+		for (Debris debris : live) {
+			world.removeBody(debris.body);
+			free.add(debris);
+		}
+		live.clear();
+		for (Debris debris : free) {
+			debris.body.dispose();
+			debris.motionState.dispose();
+		}
+		free.clear();
+		shape.release();
+	}
+}
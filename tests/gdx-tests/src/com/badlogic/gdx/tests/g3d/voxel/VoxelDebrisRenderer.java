@@ -0,0 +1,216 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.DirectionalLightsAttribute;
+import com.badlogic.gdx.graphics.g3d.environment.DirectionalLight;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.NumberUtils;
+
+/** Draws the dynamic voxels of a {@link VoxelWorld}, its {@link VoxelDebris} and the voxels of its
+ * {@link VoxelConnectivity.Island islands}, as instances of one cube mesh with a single draw call. Every instance is the world
+ * transform of the voxel, copied from the physics snapshot, and its packed color. Needs OpenGL ES 3.0, see
+ * {@link #isSupported()}. */
+public class VoxelDebrisRenderer implements Disposable {
+	public static final String vertexShader = "attribute vec3 a_position;\n" //
+		+ "attribute vec3 a_normal;\n" //
+		+ "attribute mat4 i_worldTrans;\n" //
+		+ "attribute vec4 i_color;\n" //
+		+ "uniform mat4 u_projViewTrans;\n" //
+		+ "#ifdef lightingFlag\n" //
+		+ "uniform vec3 u_ambientLight;\n" //
+		+ "uniform vec3 u_lightColor;\n" //
+		+ "uniform vec3 u_lightDirection;\n" //
+		+ "#endif\n" //
+		+ "varying vec4 v_color;\n" //
+		+ "void main() {\n" //
+		+ "	v_color = i_color;\n" //
+		+ "#ifdef lightingFlag\n" //
+		+ "	vec3 normal = normalize((i_worldTrans * vec4(a_normal, 0.0)).xyz);\n" //
+		+ "	v_color.rgb *= u_ambientLight + u_lightColor * max(dot(normal, -u_lightDirection), 0.0);\n" //
+		+ "#endif\n" //
+		+ "	gl_Position = u_projViewTrans * i_worldTrans * vec4(a_position, 1.0);\n" //
+		+ "}\n";
+
+	/** Floats per instance, the 16 of the transform and the packed color. */
+	static final int INSTANCE_SIZE = 17;
+
+	private final VoxelWorld world;
+	private final Mesh mesh;
+	private final ShaderProgram shader;
+	private final ShaderProgram litShader;
+	private final VertexAttribute[] instanceAttributes = {new VertexAttribute(Usage.Generic, 4, "i_worldTrans", 0),
+		new VertexAttribute(Usage.Generic, 4, "i_worldTrans", 1), new VertexAttribute(Usage.Generic, 4, "i_worldTrans", 2),
+		new VertexAttribute(Usage.Generic, 4, "i_worldTrans", 3),
+		new VertexAttribute(Usage.ColorPacked, 4, GL20.GL_UNSIGNED_BYTE, true, "i_color")};
+	private float[] instances;
+	private int numInstances;
+	private final Color ambient = new Color();
+
+	/** @param capacity the number of instances to reserve room for, grows when more voxels are dynamic */
+	public VoxelDebrisRenderer (VoxelWorld world, int capacity) {
+		if (!isSupported()) throw new GdxRuntimeException("Instanced rendering requires OpenGL ES 3.0.");
+		this.world = world;
+		mesh = createCube(VoxelWorld.WORLD_SCALE);
+		mesh.enableInstancedRendering(false, capacity, instanceAttributes);
+		instances = new float[capacity * INSTANCE_SIZE];
+		shader = createShader("");
+		litShader = createShader("#define lightingFlag\n");
+	}
+
+	/** @return whether the instanced draw calls are available */
+	public static boolean isSupported () {
+		return Gdx.gl30 != null;
+	}
+
+	/** Draws all dynamic voxels, must be called on the render thread after {@link VoxelWorld#update(float)}.
+	 * @param environment the ambient light and first directional light are used if not null */
+	public void render (Camera camera, Environment environment) {
+		fillInstances();
+		if (numInstances == 0) return;
+		mesh.setInstanceData(instances, 0, numInstances * INSTANCE_SIZE);
+
+		DirectionalLightsAttribute lights = environment != null
+			? environment.get(DirectionalLightsAttribute.class, DirectionalLightsAttribute.Type) : null;
+		boolean lighting = lights != null && lights.lights.size > 0;
+		ShaderProgram program = lighting ? litShader : shader;
+		program.bind();
+		program.setUniformMatrix("u_projViewTrans", camera.combined);
+		if (lighting) {
+			ColorAttribute ambientLight = environment.get(ColorAttribute.class, ColorAttribute.AmbientLight);
+			ambient.set(ambientLight != null ? ambientLight.color : Color.BLACK);
+			program.setUniformf("u_ambientLight", ambient.r, ambient.g, ambient.b);
+			DirectionalLight light = lights.lights.first();
+			program.setUniformf("u_lightColor", light.color.r, light.color.g, light.color.b);
+			program.setUniformf("u_lightDirection", light.direction);
+		}
+
+		Gdx.gl.glEnable(GL20.GL_DEPTH_TEST);
+		Gdx.gl.glDepthMask(true);
+		Gdx.gl.glEnable(GL20.GL_CULL_FACE);
+		Gdx.gl.glCullFace(GL20.GL_BACK);
+		mesh.render(program, GL20.GL_TRIANGLES);
+		Gdx.gl.glDisable(GL20.GL_CULL_FACE);
+		// the divisors stay with the attribute locations, other meshes must not step them per instance
+		for (VertexAttribute attribute : instanceAttributes) {
+			int location = program.getAttributeLocation(attribute.alias);
+			if (location >= 0) Gdx.gl30.glVertexAttribDivisor(location + attribute.unit, 0);
+		}
+	}
+
+	/** Writes an instance for every debris body and every voxel of an island, growing the instance buffer if needed. */
+	private void fillInstances () {
+		Array<VoxelDebris.Debris> debris = world.debris.live;
+		Array<VoxelConnectivity.Island> islands = world.connectivity.getIslands();
+		int count = debris.size;
+		for (int i = 0; i < islands.size; i++)
+			count += islands.get(i).size();
+		if (count * INSTANCE_SIZE > instances.length) {
+			int capacity = Math.max(count, instances.length / INSTANCE_SIZE * 2);
+			instances = new float[capacity * INSTANCE_SIZE];
+			mesh.disableInstancedRendering();
+			mesh.enableInstancedRendering(false, capacity, instanceAttributes);
+		}
+
+		float[] instances = this.instances;
+		int offset = 0;
+		for (int i = 0; i < debris.size; i++) {
+			VoxelDebris.Debris voxel = debris.get(i);
+			world.getRenderTransform(voxel.body, instances, offset);
+			instances[offset + 16] = packColor(voxel.color);
+			offset += INSTANCE_SIZE;
+		}
+		for (int i = 0; i < islands.size; i++) {
+			VoxelConnectivity.Island island = islands.get(i);
+			int first = offset;
+			world.getRenderTransform(island.body, instances, first);
+			// the first voxel's translation is overwritten below, the body's has to be kept aside
+			float bodyX = instances[first + 12], bodyY = instances[first + 13], bodyZ = instances[first + 14];
+			FloatArray offsets = island.offsets;
+			for (int v = 0, n = island.size(); v < n; v++) {
+				if (offset != first) System.arraycopy(instances, first, instances, offset, 12);
+				// the voxel's center is the body's moved by the voxel's offset rotated into the world
+				float x = offsets.get(v * 3), y = offsets.get(v * 3 + 1), z = offsets.get(v * 3 + 2);
+				instances[offset + 12] = bodyX + instances[first] * x + instances[first + 4] * y + instances[first + 8] * z;
+				instances[offset + 13] = bodyY + instances[first + 1] * x + instances[first + 5] * y + instances[first + 9] * z;
+				instances[offset + 14] = bodyZ + instances[first + 2] * x + instances[first + 6] * y + instances[first + 10] * z;
+				instances[offset + 15] = instances[first + 15];
+				instances[offset + 16] = packColor(island.colors.get(v));
+				offset += INSTANCE_SIZE;
+			}
+		}
+		numInstances = count;
+	}
+
+	/** @return the number of voxels drawn by the last {@link #render(Camera, Environment)} */
+	public int getNumInstances () {
+		return numInstances;
+	}
+
+	/** @return a 4444 color as packed ABGR float bits */
+	static float packColor (int color) {
+		int r = (color >> 12 & 0xF) * 17, g = (color >> 8 & 0xF) * 17, b = (color >> 4 & 0xF) * 17, a = (color & 0xF) * 17;
+		return NumberUtils.intToFloatColor(a << 24 | b << 16 | g << 8 | r);
+	}
+
+	private static ShaderProgram createShader (String prefix) {
+		ShaderProgram program = new ShaderProgram(prefix + vertexShader, prefix + VoxelShader.fragmentShader);
+		if (!program.isCompiled()) throw new GdxRuntimeException("Couldn't compile debris shader: " + program.getLog());
+		return program;
+	}
+
+	/** @return a cube of the given size around the origin, its faces wound counter clockwise seen from outside */
+	private static Mesh createCube (float size) {
+		// normal and the two edge directions of every face, the edges' cross product is the normal
+		float[] faces = { //
+			0, 1, 0, 0, 0, 1, 1, 0, 0, //
+			0, -1, 0, 1, 0, 0, 0, 0, 1, //
+			-1, 0, 0, 0, 0, 1, 0, 1, 0, //
+			1, 0, 0, 0, 1, 0, 0, 0, 1, //
+			0, 0, -1, 0, 1, 0, 1, 0, 0, //
+			0, 0, 1, 1, 0, 0, 0, 1, 0};
+		float[] corners = {-1, -1, 1, -1, 1, 1, -1, 1};
+		float[] vertices = new float[6 * 4 * 6];
+		short[] indices = new short[6 * 6];
+		float half = size / 2;
+		for (int f = 0, v = 0, i = 0; f < 6; f++) {
+			int n = f * 9, u = n + 3, w = n + 6;
+			for (int c = 0; c < 4; c++) {
+				float cu = corners[c * 2], cw = corners[c * 2 + 1];
+				for (int axis = 0; axis < 3; axis++)
+					vertices[v++] = (faces[n + axis] + faces[u + axis] * cu + faces[w + axis] * cw) * half;
+				for (int axis = 0; axis < 3; axis++)
+					vertices[v++] = faces[n + axis];
+			}
+			short first = (short)(f * 4);
+			indices[i++] = first;
+			indices[i++] = (short)(first + 1);
+			indices[i++] = (short)(first + 2);
+			indices[i++] = (short)(first + 2);
+			indices[i++] = (short)(first + 3);
+			indices[i++] = first;
+		}
+		Mesh mesh = new Mesh(true, 24, 36, VertexAttribute.Position(), VertexAttribute.Normal());
+		mesh.setVertices(vertices);
+		mesh.setIndices(indices);
+		return mesh;
+	}
+
+	@Override
+	public void dispose () {
+		mesh.dispose();
+		shader.dispose();
+		litShader.dispose();
+	}
+}
@@ -0,0 +1,20 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.physics.bullet.dynamics.btRigidBody;
+import com.badlogic.gdx.utils.Pool;
+
+/** A projectile that reached a solid voxel during a step of a {@link VoxelWorld}, see {@link VoxelWorld#getHits()}. */
+public class VoxelHit implements Pool.Poolable {
+	public btRigidBody projectile;
+	/** The voxel that was hit. */
+	public int x, y, z;
+	/** Velocity of the projectile when it hit. */
+	public final Vector3 velocity = new Vector3();
+
+	@Override
+	public void reset () {
+		projectile = null;
+		velocity.setZero();
+	}
+}
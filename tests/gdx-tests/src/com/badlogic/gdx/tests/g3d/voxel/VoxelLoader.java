@@ -1,96 +1,365 @@
 package com.badlogic.gdx.tests.g3d.voxel;
 
-import com.badlogic.gdx.graphics.Color;
-
-import java.io.*;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.IntSet;
+
+/** Loads MagicaVoxel .vox files into a {@link VoxelWorld}. The file is read in one piece, or memory mapped when it's large, and
+ * parsed in a single pass over its chunks without copying the voxel data. Files with several models are placed through their
+ * scene graph of transform, group and shape nodes, hidden nodes and layers are skipped. The full 8 bit palette ends up in
+ * {@link VoxelWorld#palette}, the voxels store it rounded to 4444. The scene is centered on the world's x and z axes and stands
+ * on y 0, MagicaVoxel's z axis points up. */
 public class VoxelLoader {
+	/** Files of at least this many bytes are memory mapped instead of read into the heap. */
+	public static int mapThreshold = 1 << 20;
+
+	static final int ID_VOX = id('V', 'O', 'X', ' ');
+	static final int ID_MAIN = id('M', 'A', 'I', 'N');
+	static final int ID_SIZE = id('S', 'I', 'Z', 'E');
+	static final int ID_XYZI = id('X', 'Y', 'Z', 'I');
+	static final int ID_RGBA = id('R', 'G', 'B', 'A');
+	static final int ID_TRANSFORM = id('n', 'T', 'R', 'N');
+	static final int ID_GROUP = id('n', 'G', 'R', 'P');
+	static final int ID_SHAPE = id('n', 'S', 'H', 'P');
+	static final int ID_LAYER = id('L', 'A', 'Y', 'R');
+
+	/** A model of the file, its voxels are left in the buffer. */
+	static class Model {
+		int sizeX, sizeY, sizeZ;
+		/** Position of the first voxel in the buffer, four bytes per voxel: x, y, z and the palette index. */
+		int voxels;
+		int numVoxels;
+	}
+
+	/** A node of the scene graph, which fields are used depends on the chunk it was read from. */
+	static class Node {
+		int type;
+		boolean hidden;
+		/** Transform: the child node, the layer and the first frame's rotation and translation. */
+		int child, layer;
+		int rotation = 0b0000100;
+		int tx, ty, tz;
+		/** Group: the child nodes, shape: the models. */
+		int[] children;
+	}
+
+	/** A model placed into the scene, the rotation is a signed permutation matrix in row major order. */
+	static class Instance {
+		Model model;
+		final int[] rotation = new int[9];
+		int tx, ty, tz;
+	}
+
+	public static VoxelWorld loadFromVoxFile (String filePath, int chunksX, int chunksY, int chunksZ) throws IOException {
+		return loadFromVoxFile(filePath, chunksX, chunksY, chunksZ, VoxelVertexFormat.Full);
+	}
+
+	public static VoxelWorld loadFromVoxFile (String filePath, int chunksX, int chunksY, int chunksZ,
+		VoxelVertexFormat vertexFormat) throws IOException {
+		return loadFromVoxFile(new FileHandle(filePath), chunksX, chunksY, chunksZ, vertexFormat);
+	}
+
+	/** @return a new world of the given size holding the scene of the file */
+	public static VoxelWorld loadFromVoxFile (FileHandle file, int chunksX, int chunksY, int chunksZ,
+		VoxelVertexFormat vertexFormat) throws IOException {
+		VoxelWorld world = new VoxelWorld(chunksX, chunksY, chunksZ, vertexFormat);
+		load(file, world);
+		return world;
+	}
+
+	/** Writes the scene of a .vox file into the world in a single edit, voxels outside the world are dropped. */
+	public static void load (FileHandle file, VoxelWorld world) throws IOException {
+		ByteBuffer buffer = read(file, mapThreshold);
+		try {
+			load(buffer, world);
+		} catch (BufferUnderflowException ex) {
+			throw new IOException("Truncated .vox file: " + file, ex);
+		}
+	}
+
+	/** @return the whole file as a little endian buffer, memory mapped if it's on the file system and at least mapThreshold bytes
+	 *         long */
+	static ByteBuffer read (FileHandle file, long mapThreshold) {
+		FileType type = file.type();
+		boolean map = (type == FileType.Absolute || type == FileType.External || type == FileType.Local)
+			&& file.length() >= mapThreshold;
+		ByteBuffer buffer = map ? file.map() : ByteBuffer.wrap(file.readBytes());
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	static void load (ByteBuffer buffer, VoxelWorld world) throws IOException {
+		if (buffer.remaining() < 20 || buffer.getInt() != ID_VOX) throw new IOException("Not a valid .vox file");
+		buffer.getInt(); // version
+		if (buffer.getInt() != ID_MAIN) throw new IOException("Not a valid .vox file, MAIN chunk missing");
+		int mainContent = buffer.getInt(), mainChildren = buffer.getInt();
+		int end = buffer.position() + mainContent + mainChildren;
+		if (end > buffer.limit()) throw new BufferUnderflowException();
+		buffer.position(buffer.position() + mainContent);
+
+		Array<Model> models = new Array<Model>();
+		IntMap<Node> nodes = new IntMap<Node>();
+		IntSet hiddenLayers = new IntSet();
+		int[] palette = world.palette;
+		setDefaultPalette(palette);
+		Model size = null;
+		while (buffer.position() + 12 <= end) {
+			int id = buffer.getInt(), content = buffer.getInt(), children = buffer.getInt();
+			int start = buffer.position(), next = start + content + children;
+			if (next > end) throw new BufferUnderflowException();
+			if (id == ID_SIZE) {
+				size = new Model();
+				size.sizeX = buffer.getInt();
+				size.sizeY = buffer.getInt();
+				size.sizeZ = buffer.getInt();
+			} else if (id == ID_XYZI) {
+				if (size == null) throw new IOException("XYZI chunk without a SIZE chunk");
+				size.numVoxels = buffer.getInt();
+				size.voxels = buffer.position();
+				if (size.voxels + size.numVoxels * 4L > next) throw new BufferUnderflowException();
+				models.add(size);
+				size = null;
+			} else if (id == ID_RGBA) {
+				// the file's entries 0 to 254 are palette indices 1 to 255
+				for (int i = 1; i < 256; i++)
+					palette[i] = Integer.reverseBytes(buffer.getInt());
+			} else if (id == ID_TRANSFORM) {
+				Node node = readNode(buffer, nodes, id);
+				node.child = buffer.getInt();
+				buffer.getInt(); // reserved
+				node.layer = buffer.getInt();
+				if (buffer.getInt() > 0) readFrame(buffer, node);
+			} else if (id == ID_GROUP) {
+				Node node = readNode(buffer, nodes, id);
+				node.children = new int[buffer.getInt()];
+				for (int i = 0; i < node.children.length; i++)
+					node.children[i] = buffer.getInt();
+			} else if (id == ID_SHAPE) {
+				Node node = readNode(buffer, nodes, id);
+				node.children = new int[buffer.getInt()];
+				for (int i = 0; i < node.children.length; i++) {
+					node.children[i] = buffer.getInt();
+					skipDict(buffer);
+				}
+			} else if (id == ID_LAYER) {
+				int layer = buffer.getInt();
+				if (readHidden(buffer)) hiddenLayers.add(layer);
+			}
+			buffer.position(next);
+		}
+
+		Array<Instance> instances = new Array<Instance>();
+		if (nodes.size == 0) {
+			// files without a scene graph place every model at the origin
+			for (Model model : models) {
+				Instance instance = new Instance();
+				instance.model = model;
+				setRotation(instance.rotation, 0b0000100);
+				instances.add(instance);
+			}
+		} else {
+			int[] rotation = new int[9];
+			setRotation(rotation, 0b0000100);
+			addInstances(0, nodes, models, hiddenLayers, rotation, 0, 0, 0, instances, nodes.size);
+		}
+		place(world, buffer, instances, palette);
+	}
+
+	/** Places the instances into the world, centered on x and z with the bottom of their bounds at y 0. */
+	private static void place (VoxelWorld world, ByteBuffer buffer, Array<Instance> instances, int[] palette) {
+		if (instances.size == 0) return;
+		// bounds in world axes, world x is -y, world y is z and world z is x of the file
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+		int[] corner = new int[3];
+		int maxVoxels = 0;
+		for (Instance instance : instances) {
+			Model model = instance.model;
+			maxVoxels = Math.max(maxVoxels, model.numVoxels);
+			for (int c = 0; c < 2; c++) {
+				transform(instance, c * (model.sizeX - 1), c * (model.sizeY - 1), c * (model.sizeZ - 1), corner);
+				minX = Math.min(minX, -corner[1]);
+				maxX = Math.max(maxX, -corner[1]);
+				minY = Math.min(minY, corner[2]);
+				maxY = Math.max(maxY, corner[2]);
+				minZ = Math.min(minZ, corner[0]);
+				maxZ = Math.max(maxZ, corner[0]);
+			}
+		}
+		int offsetX = (world.voxelsX - (maxX - minX + 1)) / 2 - minX;
+		int offsetY = -minY;
+		int offsetZ = (world.voxelsZ - (maxZ - minZ + 1)) / 2 - minZ;
+
+		// palette rounded to 4444, the format the chunks store
+		int[] colors4444 = new int[256];
+		for (int i = 1; i < 256; i++) {
+			int rgba = palette[i];
+			colors4444[i] = to4(rgba >>> 24) << 12 | to4(rgba >>> 16 & 0xFF) << 8 | to4(rgba >>> 8 & 0xFF) << 4 | to4(rgba & 0xFF);
+		}
+
+		int[] cells = new int[maxVoxels], colors = new int[maxVoxels];
+		int voxelsX = world.voxelsX, voxelsY = world.voxelsY, voxelsZ = world.voxelsZ, layer = voxelsX * voxelsZ;
+		world.beginEdit();
+		for (Instance instance : instances) {
+			Model model = instance.model;
+			int[] r = instance.rotation;
+			// twice the voxel centers relative to the model center, rotated and translated, halved with floor
+			int baseX = r[0] * (1 - model.sizeX) + r[1] * (1 - model.sizeY) + r[2] * (1 - model.sizeZ) + 2 * instance.tx;
+			int baseY = r[3] * (1 - model.sizeX) + r[4] * (1 - model.sizeY) + r[5] * (1 - model.sizeZ) + 2 * instance.ty;
+			int baseZ = r[6] * (1 - model.sizeX) + r[7] * (1 - model.sizeY) + r[8] * (1 - model.sizeZ) + 2 * instance.tz;
+			int count = 0;
+			for (int i = 0, p = model.voxels; i < model.numVoxels; i++, p += 4) {
+				int voxel = buffer.getInt(p);
+				int index = voxel >>> 24;
+				if (index == 0) continue;
+				int vx = 2 * (voxel & 0xFF), vy = 2 * (voxel >>> 8 & 0xFF), vz = 2 * (voxel >>> 16 & 0xFF);
+				int mx = r[0] * vx + r[1] * vy + r[2] * vz + baseX >> 1;
+				int my = r[3] * vx + r[4] * vy + r[5] * vz + baseY >> 1;
+				int mz = r[6] * vx + r[7] * vy + r[8] * vz + baseZ >> 1;
+				int x = offsetX - my, y = offsetY + mz, z = offsetZ + mx;
+				if (x < 0 || x >= voxelsX || y < 0 || y >= voxelsY || z < 0 || z >= voxelsZ) continue;
+				cells[count] = x + z * voxelsX + y * layer;
+				colors[count++] = colors4444[index];
+			}
+			world.setVoxels(cells, colors, count, (byte)1);
+		}
+		world.commitEdit();
+	}
+
+	/** Adds the models below a node, depth first, with the transforms of its ancestors applied. */
+	private static void addInstances (int nodeId, IntMap<Node> nodes, Array<Model> models, IntSet hiddenLayers, int[] rotation,
+		int tx, int ty, int tz, Array<Instance> instances, int depth) {
+		Node node = nodes.get(nodeId);
+		// a cycle can't be deeper than the number of nodes
+		if (node == null || depth < 0) return;
+		if (node.type == ID_TRANSFORM) {
+			if (node.hidden || hiddenLayers.contains(node.layer)) return;
+			int[] local = new int[9], combined = new int[9];
+			setRotation(local, node.rotation);
+			for (int row = 0; row < 3; row++)
+				for (int col = 0; col < 3; col++)
+					combined[row * 3 + col] = rotation[row * 3] * local[col] + rotation[row * 3 + 1] * local[3 + col]
+						+ rotation[row * 3 + 2] * local[6 + col];
+			int x = rotation[0] * node.tx + rotation[1] * node.ty + rotation[2] * node.tz + tx;
+			int y = rotation[3] * node.tx + rotation[4] * node.ty + rotation[5] * node.tz + ty;
+			int z = rotation[6] * node.tx + rotation[7] * node.ty + rotation[8] * node.tz + tz;
+			addInstances(node.child, nodes, models, hiddenLayers, combined, x, y, z, instances, depth - 1);
+		} else if (node.type == ID_GROUP) {
+			for (int child : node.children)
+				addInstances(child, nodes, models, hiddenLayers, rotation, tx, ty, tz, instances, depth - 1);
+		} else if (node.type == ID_SHAPE) {
+			for (int modelId : node.children) {
+				if (modelId < 0 || modelId >= models.size) continue;
+				Instance instance = new Instance();
+				instance.model = models.get(modelId);
+				System.arraycopy(rotation, 0, instance.rotation, 0, 9);
+				instance.tx = tx;
+				instance.ty = ty;
+				instance.tz = tz;
+				instances.add(instance);
+			}
+		}
+	}
+
+	/** Sets out to the cell a voxel of the instance's model ends up in, in the axes of the file. */
+	private static void transform (Instance instance, int x, int y, int z, int[] out) {
+		Model model = instance.model;
+		int[] r = instance.rotation;
+		int cx = 2 * x + 1 - model.sizeX, cy = 2 * y + 1 - model.sizeY, cz = 2 * z + 1 - model.sizeZ;
+		out[0] = r[0] * cx + r[1] * cy + r[2] * cz + 2 * instance.tx >> 1;
+		out[1] = r[3] * cx + r[4] * cy + r[5] * cz + 2 * instance.ty >> 1;
+		out[2] = r[6] * cx + r[7] * cy + r[8] * cz + 2 * instance.tz >> 1;
+	}
+
+	/** Reads the id and attributes every node chunk starts with and registers the node. */
+	private static Node readNode (ByteBuffer buffer, IntMap<Node> nodes, int type) {
+		Node node = new Node();
+		node.type = type;
+		nodes.put(buffer.getInt(), node);
+		node.hidden = readHidden(buffer);
+		return node;
+	}
+
+	/** Reads an attribute dictionary, only its hidden flag is of interest. */
+	private static boolean readHidden (ByteBuffer buffer) {
+		boolean hidden = false;
+		for (int i = 0, n = buffer.getInt(); i < n; i++) {
+			String key = readString(buffer), value = readString(buffer);
+			if (key.equals("_hidden")) hidden = value.equals("1");
+		}
+		return hidden;
+	}
+
+	/** Reads the rotation and translation of a transform's frame, skipping the frames after it. */
+	private static void readFrame (ByteBuffer buffer, Node node) {
+		for (int i = 0, n = buffer.getInt(); i < n; i++) {
+			String key = readString(buffer), value = readString(buffer);
+			if (key.equals("_r"))
+				node.rotation = Integer.parseInt(value.trim());
+			else if (key.equals("_t")) {
+				String[] t = value.trim().split("\\s+");
+				node.tx = Integer.parseInt(t[0]);
+				node.ty = Integer.parseInt(t[1]);
+				node.tz = Integer.parseInt(t[2]);
+			}
+		}
+	}
+
+	/** Sets the 3x3 matrix encoded in a rotation byte: bits 0-1 and 2-3 are the columns of the first two rows' non zero entry,
+	 * bits 4, 5 and 6 the signs of the three rows. */
+	static void setRotation (int[] matrix, int bits) {
+		int first = bits & 3, second = bits >> 2 & 3, third = 3 - first - second;
+		for (int i = 0; i < 9; i++)
+			matrix[i] = 0;
+		matrix[first] = (bits & 1 << 4) != 0 ? -1 : 1;
+		matrix[3 + second] = (bits & 1 << 5) != 0 ? -1 : 1;
+		matrix[6 + third] = (bits & 1 << 6) != 0 ? -1 : 1;
+	}
+
+	private static String readString (ByteBuffer buffer) {
+		int length = buffer.getInt();
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes);
+	}
+
+	private static void skipDict (ByteBuffer buffer) {
+		for (int i = 0, n = buffer.getInt() * 2; i < n; i++)
+			buffer.position(buffer.position() + buffer.getInt());
+	}
+
+	/** Sets MagicaVoxel's default palette, used by files without an RGBA chunk: a 6x6x6 color cube followed by ramps of red,
+	 * green, blue and gray. */
+	static void setDefaultPalette (int[] palette) {
+		int i = 1;
+		for (int r = 5; r >= 0; r--)
+			for (int g = 5; g >= 0; g--)
+				for (int b = 5; b >= 0; b--)
+					if (r + g + b > 0) palette[i++] = (r * 51) << 24 | (g * 51) << 16 | (b * 51) << 8 | 0xFF;
+		int[] ramp = {0xEE, 0xDD, 0xBB, 0xAA, 0x88, 0x77, 0x55, 0x44, 0x22, 0x11};
+		for (int channel = 3; channel >= 0; channel--) {
+			for (int value : ramp) {
+				// channels 3 to 1 are red, green and blue, 0 is gray
+				int shift = channel * 8;
+				palette[i++] = (channel == 0 ? value << 24 | value << 16 | value << 8 : value << shift) | 0xFF;
+			}
+		}
+		palette[0] = 0;
+	}
+
+	/** @return an 8 bit channel rounded to 4 bits */
+	private static int to4 (int value) {
+		return (value * 15 + 127) / 255;
+	}
 
-    public static VoxelWorld loadFromVoxFile(String filePath, int chunksX, int chunksY, int chunksZ) throws IOException {
-        int sizeX = 0;
-        int sizeY = 0;
-        int offsetX = 50;
-        int offsetY = 10;
-        int offsetZ = 50;
-        VoxelWorld world = new VoxelWorld( chunksX, chunksY, chunksZ);
-        byte[] fileData = readFileToByteArray(filePath);
-        ByteBuffer buffer = ByteBuffer.wrap(fileData).order(ByteOrder.LITTLE_ENDIAN);
-        byte[] magic = new byte[4];
-        buffer.get(magic);
-        if (!(magic[0] == 'V' && magic[1] == 'O' && magic[2] == 'X' && magic[3] == ' ')) {
-            throw new IOException("Not a valid .vox file");
-        }
-
-        buffer.getInt();
-        int chunkStart0= buffer.position();
-        while (buffer.remaining() >= 12) {
-            String chunkId = readChunkId(buffer);
-            int chunkSize = buffer.getInt();
-            int childChunks = buffer.getInt();
-            int chunkStart = buffer.position();
-         if (chunkId.equals("RGBA")) {
-             buffer.position(buffer.position() + 4);
-             for (int i = 1; i < 256; i++) {
-                 int r4 = (buffer.get() & 0xFF) >> 4; // 0-15
-                 int g4 = (buffer.get() & 0xFF) >> 4;
-                 int b4 = (buffer.get() & 0xFF) >> 4;
-                 int a4 = (buffer.get() & 0xFF) >> 4;
-                 short color = (short)((r4 << 12) | (g4 << 8) | (b4 << 4) | a4);
-                 world.palette[i] = color;
-             }
-        }
-            buffer.position(chunkStart + chunkSize);
-        }
-        buffer.position(chunkStart0);
-            while (buffer.remaining() >= 12) {
-                String chunkId = readChunkId(buffer);
-                int chunkSize = buffer.getInt();
-                int childChunks = buffer.getInt();
-                int chunkStart = buffer.position();
-
-                if (chunkId.equals("SIZE")) {
-                    sizeX = buffer.getInt();
-                    sizeY = buffer.getInt();
-                    int sizeZ = buffer.getInt();
-                    offsetX = (world.voxelsX - sizeX) / 2; // Центр по X
-                    offsetZ = (world.voxelsZ - sizeZ) / 2;
-                } else if (chunkId.equals("XYZI")) {
-                    int numVoxels = buffer.getInt();
-                    for (int i = 0; i < numVoxels; i++) {
-                        int x = (buffer.get() & 0xFF) ;
-                        int y = ((buffer.get() & 0xFF) * - 1) + sizeY;
-                        int z = (buffer.get() & 0xFF);
-                        int colorIndex = buffer.get() & 0xFF;
-
-                        if (colorIndex > 0) {
-                            int color = world.palette[colorIndex];
-                            world.setVoxelWithColor(y + offsetX, z, x + offsetZ, (byte) 1, color);
-                        }
-                    }
-                }
-                buffer.position(chunkStart + chunkSize);
-            }
-
-        return world;
-    }
-
-    private static String readChunkId(ByteBuffer buffer) {
-        byte[] idBytes = new byte[4];
-        buffer.get(idBytes);
-        return new String(idBytes);
-    }
-
-    private static byte[] readFileToByteArray(String filePath) throws IOException {
-        try (InputStream is = new FileInputStream(filePath);
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            byte[] buffer = new byte[1024];
-            int len;
-            while ((len = is.read(buffer)) != -1) {
-                baos.write(buffer, 0, len);
-            }
-            return baos.toByteArray();
-        }
-    }
-}
\ No newline at end of file
+	private static int id (char a, char b, char c, char d) {
+		return a | b << 8 | c << 16 | d << 24;
+	}
+}
@@ -0,0 +1,126 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+/** Remeshes the dirty chunks of a {@link VoxelWorld}. Every job meshes a snapshot of a chunk into its own vertex buffer on a
+ * worker thread, only the upload to the chunk's mesh happens on the render thread, at most {@link #uploadsPerFrame} per call to
+ * {@link #update()}. With zero threads all dirty chunks are meshed and uploaded synchronously. */
+public class VoxelMesher implements Disposable {
+	static class Job implements AsyncTask<Job> {
+		final VoxelChunk chunk;
+		final float[] vertices;
+		final VoxelVertexFormat format;
+		VoxelWorld.Meshing meshing;
+		int index;
+		int numVertices;
+		long faceVisibility;
+		AsyncResult<Job> result;
+
+		Job (VoxelVertexFormat format) {
+			this.format = format;
+			chunk = new VoxelChunk(VoxelWorld.CHUNK_SIZE_X, VoxelWorld.CHUNK_SIZE_Y, VoxelWorld.CHUNK_SIZE_Z);
+			vertices = new float[format.vertexSize * VoxelWorld.MAX_RANGE_VERTICES];
+		}
+
+		/** Copies the packed voxels and the neighbor borders of the chunk, must be called on the thread that edits the world. */
+		void snapshot (VoxelWorld world, int index) {
+			VoxelChunk source = world.chunks[index];
+			this.index = index;
+			this.meshing = world.getMeshing();
+			chunk.set(source);
+			chunk.setOffset(source.offset.x, source.offset.y, source.offset.z);
+			world.copyBorders(index, chunk);
+		}
+
+		@Override
+		public Job call () {
+			numVertices = meshing == VoxelWorld.Meshing.Greedy ? chunk.calculateVerticesGreedy(format, vertices)
+				: chunk.calculateVertices(format, vertices);
+			faceVisibility = chunk.computeFaceVisibility();
+			return this;
+		}
+	}
+
+	private final VoxelWorld world;
+	private final AsyncExecutor executor;
+	private final Array<Job> freeJobs = new Array<Job>();
+	private final Array<Job> running = new Array<Job>();
+	private final Array<Job> finished = new Array<Job>();
+	private final boolean[] inFlight;
+	/** Maximum number of meshes uploaded per call to {@link #update()}. */
+	public int uploadsPerFrame = 16;
+
+	/** @param threads the number of worker threads, 0 to mesh on the calling thread */
+	public VoxelMesher (VoxelWorld world, int threads) {
+		this.world = world;
+		this.executor = threads > 0 ? new AsyncExecutor(threads, "VoxelMesher") : null;
+		this.inFlight = new boolean[world.numChunks];
+		// two jobs per thread, so workers stay busy while finished jobs wait for their upload
+		int jobs = Math.max(1, threads * 2);
+		for (int i = 0; i < jobs; i++)
+			freeJobs.add(new Job(world.vertexFormat));
+	}
+
+	/** Uploads finished meshes and submits visible dirty chunks that aren't being meshed yet. Must be called on the render thread
+	 * after {@link VoxelWorld#visible} is updated. */
+	public void update () {
+		if (executor == null) {
+			Job job = freeJobs.first();
+			for (int i = 0; i < world.numChunks; i++) {
+				if (!world.dirty[i] || !world.visible[i]) continue;
+				world.dirty[i] = false;
+				job.snapshot(world, i);
+				job.call();
+				world.chunks[i].faceVisibility = job.faceVisibility;
+				world.uploadMesh(i, job.vertices, job.numVertices);
+			}
+			return;
+		}
+
+		for (int i = 0; i < running.size; i++) {
+			Job job = running.get(i);
+			if (!job.result.isDone()) continue;
+			job.result.get();
+			job.result = null;
+			running.removeIndex(i--);
+			finished.add(job);
+		}
+
+		for (int uploads = 0; finished.size > 0 && uploads < uploadsPerFrame; uploads++) {
+			Job job = finished.removeIndex(0);
+			world.chunks[job.index].faceVisibility = job.faceVisibility;
+			world.uploadMesh(job.index, job.vertices, job.numVertices);
+			inFlight[job.index] = false;
+			freeJobs.add(job);
+		}
+
+		for (int i = 0; i < world.numChunks && freeJobs.size > 0; i++) {
+			if (!world.dirty[i] || !world.visible[i] || inFlight[i]) continue;
+			Job job = freeJobs.pop();
+			world.dirty[i] = false;
+			inFlight[i] = true;
+			job.snapshot(world, i);
+			job.result = executor.submit(job);
+			running.add(job);
+		}
+	}
+
+	/** @return whether no chunk is waiting to be meshed or uploaded */
+	public boolean isIdle () {
+		if (running.size > 0 || finished.size > 0) return false;
+		for (int i = 0; i < world.numChunks; i++)
+			if (world.dirty[i]) return false;
+		return true;
+	}
+
+	@Override
+	public void dispose () {
+		if (executor != null) executor.dispose();
+		running.clear();
+		finished.clear();
+	}
+}
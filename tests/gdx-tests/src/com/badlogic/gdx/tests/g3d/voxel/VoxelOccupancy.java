@@ -0,0 +1,204 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import static com.badlogic.gdx.tests.g3d.voxel.VoxelWorld.CHUNK_SIZE_X;
+import static com.badlogic.gdx.tests.g3d.voxel.VoxelWorld.CHUNK_SIZE_Y;
+import static com.badlogic.gdx.tests.g3d.voxel.VoxelWorld.CHUNK_SIZE_Z;
+import static com.badlogic.gdx.tests.g3d.voxel.VoxelWorld.WORLD_SCALE;
+
+import java.nio.ByteBuffer;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/** The solid voxels of a {@link VoxelWorld} as a bitset per chunk, and the raycasts against it. The world keeps the one edits
+ * write and a copy the chunks' collision shapes read. Knows nothing about Bullet or the rendering, the world allocates the
+ * bitsets and keeps them up to date. */
+class VoxelOccupancy {
+	final int chunksX, chunksY, chunksZ;
+	final int voxelsX, voxelsY, voxelsZ;
+	/** Occupancy bitset of each chunk, bit {@code i & 7} of byte {@code i >> 3} is set for solid voxel {@code i}, the voxels are
+	 * numbered x first, then z, then y. */
+	final ByteBuffer[] cells;
+	/** Number of solid voxels of each chunk, lets raycasts skip empty chunks. */
+	final int[] solidVoxels;
+
+	/** The bitsets are left null, see {@link #cells}. */
+	VoxelOccupancy (int chunksX, int chunksY, int chunksZ) {
+		this.chunksX = chunksX;
+		this.chunksY = chunksY;
+		this.chunksZ = chunksZ;
+		this.voxelsX = chunksX * CHUNK_SIZE_X;
+		this.voxelsY = chunksY * CHUNK_SIZE_Y;
+		this.voxelsZ = chunksZ * CHUNK_SIZE_Z;
+		int numChunks = chunksX * chunksY * chunksZ;
+		cells = new ByteBuffer[numChunks];
+		solidVoxels = new int[numChunks];
+	}
+
+	/** @return whether the voxel is solid, false outside the world, safe to call while the physics steps */
+	boolean isSolid (int x, int y, int z) {
+		if (x < 0 || x >= voxelsX || y < 0 || y >= voxelsY || z < 0 || z >= voxelsZ) return false;
+		int cell = x % CHUNK_SIZE_X + z % CHUNK_SIZE_Z * CHUNK_SIZE_X + y % CHUNK_SIZE_Y * CHUNK_SIZE_X * CHUNK_SIZE_Z;
+		return (cells[chunkIndexAt(x, y, z)].get(cell >> 3) & 1 << (cell & 7)) != 0;
+	}
+
+	/** Finds the first solid voxel along a ray with an exact grid traversal (Amanatides and Woo), chunks without solid voxels are
+	 * crossed in a single step. Allocates nothing and only reads the bitsets.
+	 * @param maxDistance the length of the ray in world units
+	 * @param hit receives the voxel, may be null
+	 * @return the distance to the first solid voxel in world units, -1 if none is hit */
+	float raycast (float originX, float originY, float originZ, float directionX, float directionY, float directionZ,
+		float maxDistance, VoxelRayHit hit) {
+		float length = (float)Math.sqrt(directionX * directionX + directionY * directionY + directionZ * directionZ);
+		if (length == 0 || maxDistance < 0) return -1;
+		// traverse in voxel units along the normalized direction
+		float ox = originX / WORLD_SCALE, oy = originY / WORLD_SCALE, oz = originZ / WORLD_SCALE;
+		float dx = directionX / length, dy = directionY / length, dz = directionZ / length;
+
+		// clip the ray to the box of the world
+		float t = 0, end = maxDistance / WORLD_SCALE;
+		int entryAxis = -1;
+		if (dx == 0) {
+			if (ox < 0 || ox > voxelsX) return -1;
+		} else {
+			float near = -ox / dx, far = (voxelsX - ox) / dx;
+			if (near > far) {
+				float swap = near;
+				near = far;
+				far = swap;
+			}
+			if (near > t) {
+				t = near;
+				entryAxis = 0;
+			}
+			end = Math.min(end, far);
+		}
+		if (dy == 0) {
+			if (oy < 0 || oy > voxelsY) return -1;
+		} else {
+			float near = -oy / dy, far = (voxelsY - oy) / dy;
+			if (near > far) {
+				float swap = near;
+				near = far;
+				far = swap;
+			}
+			if (near > t) {
+				t = near;
+				entryAxis = 1;
+			}
+			end = Math.min(end, far);
+		}
+		if (dz == 0) {
+			if (oz < 0 || oz > voxelsZ) return -1;
+		} else {
+			float near = -oz / dz, far = (voxelsZ - oz) / dz;
+			if (near > far) {
+				float swap = near;
+				near = far;
+				far = swap;
+			}
+			if (near > t) {
+				t = near;
+				entryAxis = 2;
+			}
+			end = Math.min(end, far);
+		}
+		if (t > end) return -1;
+
+		int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+		int stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+		int stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+		int x = MathUtils.clamp(MathUtils.floor(ox + dx * t), 0, voxelsX - 1);
+		int y = MathUtils.clamp(MathUtils.floor(oy + dy * t), 0, voxelsY - 1);
+		int z = MathUtils.clamp(MathUtils.floor(oz + dz * t), 0, voxelsZ - 1);
+		// the face a voxel is entered through is opposite to the direction of the step
+		int face = entryAxis == 0 ? (stepX > 0 ? 2 : 3)
+			: entryAxis == 1 ? (stepY > 0 ? 1 : 0) : entryAxis == 2 ? (stepZ > 0 ? 4 : 5) : -1;
+		float deltaX = stepX != 0 ? 1 / Math.abs(dx) : Float.POSITIVE_INFINITY;
+		float deltaY = stepY != 0 ? 1 / Math.abs(dy) : Float.POSITIVE_INFINITY;
+		float deltaZ = stepZ != 0 ? 1 / Math.abs(dz) : Float.POSITIVE_INFINITY;
+		float maxX = stepX > 0 ? (x + 1 - ox) / dx : stepX < 0 ? (x - ox) / dx : Float.POSITIVE_INFINITY;
+		float maxY = stepY > 0 ? (y + 1 - oy) / dy : stepY < 0 ? (y - oy) / dy : Float.POSITIVE_INFINITY;
+		float maxZ = stepZ > 0 ? (z + 1 - oz) / dz : stepZ < 0 ? (z - oz) / dz : Float.POSITIVE_INFINITY;
+
+		while (true) {
+			int chunk = chunkIndexAt(x, y, z);
+			if (solidVoxels[chunk] == 0) {
+				// leave the empty chunk through the nearest of its faces, the other coordinates stay inside its range
+				int minX = x - x % CHUNK_SIZE_X, minY = y - y % CHUNK_SIZE_Y, minZ = z - z % CHUNK_SIZE_Z;
+				float exitX = stepX > 0 ? (minX + CHUNK_SIZE_X - ox) / dx
+					: stepX < 0 ? (minX - ox) / dx : Float.POSITIVE_INFINITY;
+				float exitY = stepY > 0 ? (minY + CHUNK_SIZE_Y - oy) / dy
+					: stepY < 0 ? (minY - oy) / dy : Float.POSITIVE_INFINITY;
+				float exitZ = stepZ > 0 ? (minZ + CHUNK_SIZE_Z - oz) / dz
+					: stepZ < 0 ? (minZ - oz) / dz : Float.POSITIVE_INFINITY;
+				if (exitX <= exitY && exitX <= exitZ) {
+					t = exitX;
+					x = stepX > 0 ? minX + CHUNK_SIZE_X : minX - 1;
+					y = MathUtils.clamp(MathUtils.floor(oy + dy * t), minY, minY + CHUNK_SIZE_Y - 1);
+					z = MathUtils.clamp(MathUtils.floor(oz + dz * t), minZ, minZ + CHUNK_SIZE_Z - 1);
+					face = stepX > 0 ? 2 : 3;
+				} else if (exitY <= exitZ) {
+					t = exitY;
+					x = MathUtils.clamp(MathUtils.floor(ox + dx * t), minX, minX + CHUNK_SIZE_X - 1);
+					y = stepY > 0 ? minY + CHUNK_SIZE_Y : minY - 1;
+					z = MathUtils.clamp(MathUtils.floor(oz + dz * t), minZ, minZ + CHUNK_SIZE_Z - 1);
+					face = stepY > 0 ? 1 : 0;
+				} else {
+					t = exitZ;
+					x = MathUtils.clamp(MathUtils.floor(ox + dx * t), minX, minX + CHUNK_SIZE_X - 1);
+					y = MathUtils.clamp(MathUtils.floor(oy + dy * t), minY, minY + CHUNK_SIZE_Y - 1);
+					z = stepZ > 0 ? minZ + CHUNK_SIZE_Z : minZ - 1;
+					face = stepZ > 0 ? 4 : 5;
+				}
+				if (t > end || x < 0 || x >= voxelsX || y < 0 || y >= voxelsY || z < 0 || z >= voxelsZ) return -1;
+				maxX = stepX > 0 ? (x + 1 - ox) / dx : stepX < 0 ? (x - ox) / dx : Float.POSITIVE_INFINITY;
+				maxY = stepY > 0 ? (y + 1 - oy) / dy : stepY < 0 ? (y - oy) / dy : Float.POSITIVE_INFINITY;
+				maxZ = stepZ > 0 ? (z + 1 - oz) / dz : stepZ < 0 ? (z - oz) / dz : Float.POSITIVE_INFINITY;
+				continue;
+			}
+
+			int cell = x % CHUNK_SIZE_X + z % CHUNK_SIZE_Z * CHUNK_SIZE_X + y % CHUNK_SIZE_Y * CHUNK_SIZE_X * CHUNK_SIZE_Z;
+			if ((cells[chunk].get(cell >> 3) & 1 << (cell & 7)) != 0) {
+				if (hit != null) {
+					hit.x = x;
+					hit.y = y;
+					hit.z = z;
+					hit.face = face;
+					hit.distance = t * WORLD_SCALE;
+					switch (face) {
+					case 0: hit.normal.set(0, 1, 0); break;
+					case 1: hit.normal.set(0, -1, 0); break;
+					case 2: hit.normal.set(-1, 0, 0); break;
+					case 3: hit.normal.set(1, 0, 0); break;
+					case 4: hit.normal.set(0, 0, -1); break;
+					case 5: hit.normal.set(0, 0, 1); break;
+					default: hit.normal.setZero();
+					}
+				}
+				return t * WORLD_SCALE;
+			}
+
+			if (maxX <= maxY && maxX <= maxZ) {
+				x += stepX;
+				t = maxX;
+				maxX += deltaX;
+				face = stepX > 0 ? 2 : 3;
+			} else if (maxY <= maxZ) {
+				y += stepY;
+				t = maxY;
+				maxY += deltaY;
+				face = stepY > 0 ? 1 : 0;
+			} else {
+				z += stepZ;
+				t = maxZ;
+				maxZ += deltaZ;
+				face = stepZ > 0 ? 4 : 5;
+			}
+			if (t > end || x < 0 || x >= voxelsX || y < 0 || y >= voxelsY || z < 0 || z >= voxelsZ) return -1;
+		}
+	}
+
+	private int chunkIndexAt (int x, int y, int z) {
+		return x / CHUNK_SIZE_X + z / CHUNK_SIZE_Z * chunksX + y / CHUNK_SIZE_Y * chunksX * chunksZ;
+	}
+}
@@ -0,0 +1,21 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import com.badlogic.gdx.math.Vector3;
+
+/** The first solid voxel along a ray, filled by {@link VoxelWorld#raycast(Vector3, Vector3, float, VoxelRayHit)}. */
+public class VoxelRayHit {
+	/** The voxel that was hit. */
+	public int x, y, z;
+	/** The face the ray entered the voxel through, numbered like the chunk faces: 0 top, 1 bottom, 2 left, 3 right, 4 front and
+	 * 5 back. -1 if the ray started inside the voxel. */
+	public int face;
+	/** Outward normal of {@link #face}, zero if the ray started inside the voxel. */
+	public final Vector3 normal = new Vector3();
+	/** Distance from the origin of the ray to where it enters the voxel, in world units. */
+	public float distance;
+
+	/** @return out set to the point where the ray enters the voxel */
+	public Vector3 getPoint (Vector3 origin, Vector3 direction, Vector3 out) {
+		return out.set(direction).nor().scl(distance).add(origin);
+	}
+}
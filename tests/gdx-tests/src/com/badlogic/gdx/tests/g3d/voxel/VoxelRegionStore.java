@@ -0,0 +1,590 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+/** An unbounded voxel world paged between memory and region files. Chunks live in a sparse map keyed by their packed chunk
+ * coordinates, {@link #update(float, float, float)} loads the chunks within {@link #loadRadius} of the viewer nearest first on a
+ * background thread and evicts the least recently used chunks farther away once the resident chunks use more than
+ * {@link #memoryBudget} bytes, writing the edited ones back. A {@link VoxelWorld} renders and simulates a window of the store,
+ * see {@link #copyTo(VoxelWorld, int, int, int)} and {@link #copyFrom(VoxelWorld, int, int, int)}.
+ * <p>
+ * Every region file holds {@link #REGION_SIZE} cubed chunks. Its header is the magic, the version and the sector and length of
+ * every chunk, chunks are stored in 512 byte sectors the way {@link VoxelChunk#write(ByteBuffer)} writes them, empty chunks take
+ * no space. Region files are only created when a chunk in them is written, reading around the viewer never creates any. A chunk
+ * that outgrows its sectors moves to the end of the file, the sectors it leaves behind aren't reused. A chunk that can't be read
+ * is logged and treated as empty. All file access happens on the one I/O thread, in the order it was requested, so a chunk
+ * evicted and requested again is read after it was written. Must be used from a single thread. */
+public class VoxelRegionStore implements Disposable {
+	/** Chunks along each axis of a region file. */
+	public static final int REGION_SIZE = 32;
+	static final int CHUNKS_PER_REGION = REGION_SIZE * REGION_SIZE * REGION_SIZE;
+	static final int MAGIC = 'V' | 'X' << 8 | 'R' << 16 | 'G' << 24;
+	static final int VERSION = 1;
+	static final int SECTOR_SIZE = 512;
+	static final int HEADER_SIZE = 8 + CHUNKS_PER_REGION * 8;
+	static final int HEADER_SECTORS = (HEADER_SIZE + SECTOR_SIZE - 1) / SECTOR_SIZE;
+	static final int NUM_VOXELS = VoxelWorld.CHUNK_SIZE_X * VoxelWorld.CHUNK_SIZE_Y * VoxelWorld.CHUNK_SIZE_Z;
+	/** Bytes a resident chunk uses besides its palette and indices, mostly its borders. */
+	static final int CHUNK_OVERHEAD = 2048;
+	/** Bytes of an entry in the map, so empty chunks are evicted too. */
+	static final int ENTRY_OVERHEAD = 64;
+
+	/** A resident chunk, linked into the list of chunks in order of use. */
+	static class Entry {
+		long key;
+		/** Null for a chunk without voxels. */
+		VoxelChunk chunk;
+		boolean dirty;
+		int bytes;
+		/** The last write of the chunk that wasn't checked yet, see {@link VoxelRegionStore#checkWrites(boolean)}. */
+		WriteTask write;
+		Entry previous, next;
+	}
+
+	/** An open region file, only touched on the I/O thread. */
+	static class Region {
+		final long key;
+		final RandomAccessFile file;
+		final FileChannel channel;
+		final int[] sectors = new int[CHUNKS_PER_REGION];
+		final int[] lengths = new int[CHUNKS_PER_REGION];
+		int endSector = HEADER_SECTORS;
+
+		Region (long key, FileHandle handle) throws IOException {
+			this.key = key;
+			boolean exists = handle.exists();
+			file = new RandomAccessFile(handle.file(), "rw");
+			channel = file.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			// a truncated or foreign file must not leave the file open
+			try {
+				if (!exists) {
+					header.putInt(MAGIC);
+					header.putInt(VERSION);
+					header.rewind();
+					writeFully(channel, header, 0);
+					return;
+				}
+				readFully(channel, header, 0);
+				if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+					throw new IOException("Not a voxel region file: " + handle);
+			} catch (IOException ex) {
+				file.close();
+				throw ex;
+			}
+			for (int i = 0; i < CHUNKS_PER_REGION; i++) {
+				sectors[i] = header.getInt(8 + i * 8);
+				lengths[i] = header.getInt(12 + i * 8);
+				if (lengths[i] > 0) endSector = Math.max(endSector, sectors[i] + (lengths[i] + SECTOR_SIZE - 1) / SECTOR_SIZE);
+			}
+		}
+
+		/** @return the chunk's bytes, null for an empty chunk */
+		ByteBuffer read (int index) throws IOException {
+			int length = lengths[index];
+			if (length == 0) return null;
+			ByteBuffer buffer = ByteBuffer.allocate(length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, buffer, (long)sectors[index] * SECTOR_SIZE);
+			return buffer;
+		}
+
+		/** @param data null for an empty chunk */
+		void write (int index, byte[] data) throws IOException {
+			int length = data == null ? 0 : data.length, sector = 0;
+			if (length > 0) {
+				int needed = (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+				sector = sectors[index];
+				if (lengths[index] == 0 || (lengths[index] + SECTOR_SIZE - 1) / SECTOR_SIZE < needed) {
+					sector = endSector;
+					endSector += needed;
+				}
+				writeFully(channel, ByteBuffer.wrap(data), (long)sector * SECTOR_SIZE);
+			}
+			sectors[index] = sector;
+			lengths[index] = length;
+			ByteBuffer entry = ByteBuffer.allocate(8);
+			entry.order(ByteOrder.LITTLE_ENDIAN);
+			entry.putInt(sector);
+			entry.putInt(length);
+			entry.rewind();
+			writeFully(channel, entry, 8 + index * 8L);
+		}
+
+		void close () {
+			try {
+				file.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	/** Radius in chunks of the cube around the viewer that is kept loaded. */
+	public int loadRadius = 8;
+	/** Bytes the resident chunks may use, chunks outside {@link #loadRadius} are evicted beyond that. */
+	public long memoryBudget = 256L << 20;
+	/** Maximum number of chunks waiting to be read, keeps the I/O queue short so new requests near the viewer come first. */
+	public int maxPendingLoads = 64;
+	/** Maximum number of region files kept open. */
+	public int maxOpenRegions = 16;
+
+	private final FileHandle directory;
+	private final AsyncExecutor executor = new AsyncExecutor(1, "VoxelRegionStore");
+	private final LongMap<Entry> resident = new LongMap<Entry>();
+	/** Sentinel of the list of resident chunks, the most recently used follows it. */
+	private final Entry head = new Entry();
+	private final LongMap<AsyncResult<VoxelChunk>> pending = new LongMap<AsyncResult<VoxelChunk>>();
+	/** Writes queued on the I/O thread, oldest first, checked so failed ones are logged and written again. */
+	private final Array<WriteTask> writes = new Array<WriteTask>();
+	/** The unchecked write of every evicted chunk, the chunk is taken back from it rather than read from its region file. */
+	private final LongMap<WriteTask> writing = new LongMap<WriteTask>();
+	private long memoryUsage;
+	private int centerX, centerY, centerZ;
+	/** Chunk offsets within {@link #loadRadius}, three per chunk, nearest first. */
+	private int[] loadOffsets = new int[0];
+	private int loadOffsetsRadius = -1;
+	/** Only touched on the I/O thread. */
+	private final Array<Region> regions = new Array<Region>();
+
+	/** @param directory where the region files are kept, must be on the file system */
+	public VoxelRegionStore (FileHandle directory) {
+		this.directory = directory;
+		directory.mkdirs();
+		head.previous = head.next = head;
+	}
+
+	/** Loads the chunks around the viewer that aren't resident yet, takes the chunks read since the last call and evicts chunks
+	 * beyond the {@link #memoryBudget}. Call once per frame.
+	 * @param x the position of the viewer in voxels */
+	public void update (float x, float y, float z) {
+		centerX = floorDiv(MathUtils.floor(x), VoxelWorld.CHUNK_SIZE_X);
+		centerY = floorDiv(MathUtils.floor(y), VoxelWorld.CHUNK_SIZE_Y);
+		centerZ = floorDiv(MathUtils.floor(z), VoxelWorld.CHUNK_SIZE_Z);
+		checkWrites(false);
+
+		for (Iterator<LongMap.Entry<AsyncResult<VoxelChunk>>> iter = pending.iterator(); iter.hasNext();) {
+			LongMap.Entry<AsyncResult<VoxelChunk>> loaded = iter.next();
+			if (!loaded.value.isDone()) continue;
+			iter.remove();
+			add(loaded.key, get(loaded.key, loaded.value));
+		}
+
+		int[] offsets = getLoadOffsets();
+		for (int i = 0; i < offsets.length && pending.size < maxPendingLoads; i += 3) {
+			int cx = centerX + offsets[i], cy = centerY + offsets[i + 1], cz = centerZ + offsets[i + 2];
+			long key = key(cx, cy, cz);
+			if (resident.containsKey(key) || pending.containsKey(key)) continue;
+			if (writing.containsKey(key))
+				takeBack(key);
+			else
+				pending.put(key, executor.submit(new LoadTask(cx, cy, cz)));
+		}
+
+		// least recently used first, chunks around the viewer stay however much they use
+		for (Entry entry = head.previous; memoryUsage > memoryBudget && entry != head;) {
+			Entry previous = entry.previous;
+			if (!isNearViewer(entry.key)) evict(entry);
+			entry = previous;
+		}
+	}
+
+	/** @return the resident chunk, null if it's empty or not loaded yet */
+	public VoxelChunk getChunk (int chunkX, int chunkY, int chunkZ) {
+		Entry entry = resident.get(key(chunkX, chunkY, chunkZ));
+		if (entry == null) return null;
+		touch(entry);
+		return entry.chunk;
+	}
+
+	/** @return the chunk, read from its region file and waiting for it if it isn't resident, null if it's empty */
+	public VoxelChunk loadChunk (int chunkX, int chunkY, int chunkZ) {
+		return entry(chunkX, chunkY, chunkZ).chunk;
+	}
+
+	/** @return the voxel type, loading its chunk if needed */
+	public byte get (int x, int y, int z) {
+		VoxelChunk chunk = loadChunk(floorDiv(x, VoxelWorld.CHUNK_SIZE_X), floorDiv(y, VoxelWorld.CHUNK_SIZE_Y),
+			floorDiv(z, VoxelWorld.CHUNK_SIZE_Z));
+		if (chunk == null) return 0;
+		return chunk.getFast(x - floorDiv(x, VoxelWorld.CHUNK_SIZE_X) * VoxelWorld.CHUNK_SIZE_X,
+			y - floorDiv(y, VoxelWorld.CHUNK_SIZE_Y) * VoxelWorld.CHUNK_SIZE_Y,
+			z - floorDiv(z, VoxelWorld.CHUNK_SIZE_Z) * VoxelWorld.CHUNK_SIZE_Z);
+	}
+
+	/** @return the 4444 color of the voxel, loading its chunk if needed */
+	public int getColor (int x, int y, int z) {
+		VoxelChunk chunk = loadChunk(floorDiv(x, VoxelWorld.CHUNK_SIZE_X), floorDiv(y, VoxelWorld.CHUNK_SIZE_Y),
+			floorDiv(z, VoxelWorld.CHUNK_SIZE_Z));
+		if (chunk == null) return 0;
+		return chunk.getColor(x - floorDiv(x, VoxelWorld.CHUNK_SIZE_X) * VoxelWorld.CHUNK_SIZE_X,
+			y - floorDiv(y, VoxelWorld.CHUNK_SIZE_Y) * VoxelWorld.CHUNK_SIZE_Y,
+			z - floorDiv(z, VoxelWorld.CHUNK_SIZE_Z) * VoxelWorld.CHUNK_SIZE_Z);
+	}
+
+	/** Sets a voxel, loading its chunk if needed. The chunk is written back when it's evicted or on {@link #flush()}. */
+	public void set (int x, int y, int z, byte voxelType, int color) {
+		int chunkX = floorDiv(x, VoxelWorld.CHUNK_SIZE_X), chunkY = floorDiv(y, VoxelWorld.CHUNK_SIZE_Y);
+		int chunkZ = floorDiv(z, VoxelWorld.CHUNK_SIZE_Z);
+		Entry entry = entry(chunkX, chunkY, chunkZ);
+		if (entry.chunk == null) {
+			if (voxelType == 0) return;
+			entry.chunk = new VoxelChunk(VoxelWorld.CHUNK_SIZE_X, VoxelWorld.CHUNK_SIZE_Y, VoxelWorld.CHUNK_SIZE_Z);
+		}
+		entry.chunk.set(x - chunkX * VoxelWorld.CHUNK_SIZE_X, y - chunkY * VoxelWorld.CHUNK_SIZE_Y,
+			z - chunkZ * VoxelWorld.CHUNK_SIZE_Z, voxelType, color);
+		changed(entry);
+	}
+
+	/** Replaces the voxels of the world with the chunks of the store starting at the given chunk, in a single edit. Chunks that
+	 * aren't resident are read and waited for. */
+	public void copyTo (VoxelWorld world, int chunkX, int chunkY, int chunkZ) {
+		world.beginEdit();
+		for (int y = 0, i = 0; y < world.chunksY; y++)
+			for (int z = 0; z < world.chunksZ; z++)
+				for (int x = 0; x < world.chunksX; x++, i++)
+					world.setChunk(i, loadChunk(chunkX + x, chunkY + y, chunkZ + z));
+		world.commitEdit();
+	}
+
+	/** Stores the voxels of the world as the chunks starting at the given chunk, they are written back when they're evicted or on
+	 * {@link #flush()}. Must be called on the thread that edits the world. */
+	public void copyFrom (VoxelWorld world, int chunkX, int chunkY, int chunkZ) {
+		for (int y = 0, i = 0; y < world.chunksY; y++) {
+			for (int z = 0; z < world.chunksZ; z++) {
+				for (int x = 0; x < world.chunksX; x++, i++) {
+					Entry entry = entry(chunkX + x, chunkY + y, chunkZ + z);
+					if (world.getSolidVoxels(i) == 0) {
+						if (entry.chunk == null) continue;
+						entry.chunk = null;
+					} else {
+						if (entry.chunk == null)
+							entry.chunk = new VoxelChunk(VoxelWorld.CHUNK_SIZE_X, VoxelWorld.CHUNK_SIZE_Y, VoxelWorld.CHUNK_SIZE_Z);
+						entry.chunk.set(world.chunks[i]);
+					}
+					changed(entry);
+				}
+			}
+		}
+	}
+
+	/** Writes every edited chunk to its region file and waits until all writes are done. Chunks that couldn't be written are
+	 * logged and stay edited, so they are written again later. */
+	public void flush () {
+		for (Entry entry = head.next; entry != head; entry = entry.next)
+			if (entry.dirty) write(entry);
+		checkWrites(true);
+	}
+
+	/** @return the bytes used by the resident chunks */
+	public long getMemoryUsage () {
+		return memoryUsage;
+	}
+
+	/** @return the number of chunks in memory, empty ones included */
+	public int getResidentChunks () {
+		return resident.size;
+	}
+
+	/** @return the number of chunks waiting to be read */
+	public int getPendingLoads () {
+		return pending.size;
+	}
+
+	private Entry entry (int chunkX, int chunkY, int chunkZ) {
+		long key = key(chunkX, chunkY, chunkZ);
+		Entry entry = resident.get(key);
+		if (entry != null) {
+			touch(entry);
+			return entry;
+		}
+		if (writing.containsKey(key)) return takeBack(key);
+		AsyncResult<VoxelChunk> result = pending.remove(key);
+		if (result == null) result = executor.submit(new LoadTask(chunkX, chunkY, chunkZ));
+		return add(key, get(key, result));
+	}
+
+	/** Makes an evicted chunk resident again whose write wasn't checked yet, its region file may not hold it. */
+	private Entry takeBack (long key) {
+		WriteTask write = writing.remove(key);
+		Entry entry = add(key, write.chunk);
+		entry.write = write;
+		return entry;
+	}
+
+	/** @return the loaded chunk, null if it's empty or couldn't be read */
+	private VoxelChunk get (long key, AsyncResult<VoxelChunk> result) {
+		try {
+			return result.get();
+		} catch (GdxRuntimeException ex) {
+			Gdx.app.error("VoxelRegionStore", "Couldn't load chunk " + keyX(key) + ", " + keyY(key) + ", " + keyZ(key), ex);
+			return null;
+		}
+	}
+
+	private Entry add (long key, VoxelChunk chunk) {
+		Entry entry = new Entry();
+		entry.key = key;
+		entry.chunk = chunk;
+		entry.bytes = size(chunk);
+		memoryUsage += entry.bytes;
+		resident.put(key, entry);
+		link(entry);
+		return entry;
+	}
+
+	private void changed (Entry entry) {
+		entry.dirty = true;
+		memoryUsage -= entry.bytes;
+		entry.bytes = size(entry.chunk);
+		memoryUsage += entry.bytes;
+	}
+
+	private static int size (VoxelChunk chunk) {
+		return chunk == null ? ENTRY_OVERHEAD : ENTRY_OVERHEAD + CHUNK_OVERHEAD + chunk.getMemoryUsage();
+	}
+
+	private void evict (Entry entry) {
+		if (entry.dirty) write(entry);
+		if (entry.write != null) writing.put(entry.key, entry.write);
+		unlink(entry);
+		resident.remove(entry.key);
+		memoryUsage -= entry.bytes;
+	}
+
+	/** Queues the chunk's bytes for writing, serialized here so the I/O thread never sees a chunk that's being edited. */
+	private void write (Entry entry) {
+		byte[] data = null;
+		if (entry.chunk != null) {
+			data = new byte[entry.chunk.getPackedSize()];
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			entry.chunk.write(buffer);
+		}
+		WriteTask write = new WriteTask(entry.key, entry.chunk, data);
+		write.result = executor.submit(write);
+		writes.add(write);
+		entry.write = write;
+		entry.dirty = false;
+	}
+
+	/** Takes the results of the finished writes. A chunk that couldn't be written is logged and marked edited again, an evicted
+	 * one is made resident again unless a later write of it is queued.
+	 * @param wait whether to wait for the queued writes */
+	private void checkWrites (boolean wait) {
+		while (writes.size > 0) {
+			WriteTask write = writes.first();
+			if (!wait && !write.result.isDone()) break;
+			writes.removeIndex(0);
+			long key = write.key;
+			if (writing.get(key) == write) writing.remove(key);
+			Entry entry = resident.get(key);
+			if (entry != null && entry.write == write) entry.write = null;
+			try {
+				write.result.get();
+			} catch (GdxRuntimeException ex) {
+				Gdx.app.error("VoxelRegionStore", "Couldn't write chunk " + keyX(key) + ", " + keyY(key) + ", " + keyZ(key), ex);
+				if (entry == null) {
+					if (writing.containsKey(key)) continue;
+					entry = add(key, write.chunk);
+				}
+				// a resident chunk is at least as new as the one that failed
+				entry.dirty = true;
+			}
+		}
+	}
+
+	private boolean isNearViewer (long key) {
+		return Math.abs(keyX(key) - centerX) <= loadRadius && Math.abs(keyY(key) - centerY) <= loadRadius
+			&& Math.abs(keyZ(key) - centerZ) <= loadRadius;
+	}
+
+	private int[] getLoadOffsets () {
+		if (loadOffsetsRadius == loadRadius) return loadOffsets;
+		int r = loadRadius, size = 2 * r + 1;
+		Integer[] order = new Integer[size * size * size];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		final int side = size, radius = r;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare (Integer a, Integer b) {
+				return distance2(a) - distance2(b);
+			}
+
+			private int distance2 (int i) {
+				int x = i % side - radius, y = i / (side * side) - radius, z = i / side % side - radius;
+				return x * x + y * y + z * z;
+			}
+		});
+		loadOffsets = new int[order.length * 3];
+		for (int i = 0; i < order.length; i++) {
+			loadOffsets[i * 3] = order[i] % size - r;
+			loadOffsets[i * 3 + 1] = order[i] / (size * size) - r;
+			loadOffsets[i * 3 + 2] = order[i] / size % size - r;
+		}
+		loadOffsetsRadius = loadRadius;
+		return loadOffsets;
+	}
+
+	private void touch (Entry entry) {
+		if (head.next == entry) return;
+		unlink(entry);
+		link(entry);
+	}
+
+	private void link (Entry entry) {
+		entry.previous = head;
+		entry.next = head.next;
+		head.next.previous = entry;
+		head.next = entry;
+	}
+
+	private void unlink (Entry entry) {
+		entry.previous.next = entry.next;
+		entry.next.previous = entry.previous;
+	}
+
+	/** @param create whether to create the region file if it doesn't exist
+	 * @return the open region file holding the chunk, null if it doesn't exist and isn't created. Only called on the I/O
+	 *         thread. */
+	private Region region (int chunkX, int chunkY, int chunkZ, boolean create) throws IOException {
+		int regionX = floorDiv(chunkX, REGION_SIZE), regionY = floorDiv(chunkY, REGION_SIZE);
+		int regionZ = floorDiv(chunkZ, REGION_SIZE);
+		long key = key(regionX, regionY, regionZ);
+		for (int i = regions.size - 1; i >= 0; i--) {
+			Region region = regions.get(i);
+			if (region.key != key) continue;
+			// the most recently used region is last
+			regions.removeIndex(i);
+			regions.add(region);
+			return region;
+		}
+		FileHandle file = directory.child("r." + regionX + "." + regionY + "." + regionZ + ".region");
+		if (!create && !file.exists()) return null;
+		if (regions.size >= maxOpenRegions) regions.removeIndex(0).close();
+		Region region = new Region(key, file);
+		regions.add(region);
+		return region;
+	}
+
+	private static int regionIndex (int chunkX, int chunkY, int chunkZ) {
+		int x = chunkX - floorDiv(chunkX, REGION_SIZE) * REGION_SIZE, y = chunkY - floorDiv(chunkY, REGION_SIZE) * REGION_SIZE;
+		int z = chunkZ - floorDiv(chunkZ, REGION_SIZE) * REGION_SIZE;
+		return x + z * REGION_SIZE + y * REGION_SIZE * REGION_SIZE;
+	}
+
+	class LoadTask implements AsyncTask<VoxelChunk> {
+		final int chunkX, chunkY, chunkZ;
+
+		LoadTask (int chunkX, int chunkY, int chunkZ) {
+			this.chunkX = chunkX;
+			this.chunkY = chunkY;
+			this.chunkZ = chunkZ;
+		}
+
+		@Override
+		public VoxelChunk call () throws Exception {
+			Region region = region(chunkX, chunkY, chunkZ, false);
+			if (region == null) return null;
+			ByteBuffer buffer = region.read(regionIndex(chunkX, chunkY, chunkZ));
+			if (buffer == null) return null;
+			if (!VoxelChunk.isValidPacked(buffer, 0, buffer.limit(), NUM_VOXELS))
+				throw new IOException("Invalid chunk " + chunkX + ", " + chunkY + ", " + chunkZ + " in " + directory);
+			VoxelChunk chunk = new VoxelChunk(VoxelWorld.CHUNK_SIZE_X, VoxelWorld.CHUNK_SIZE_Y, VoxelWorld.CHUNK_SIZE_Z);
+			chunk.read(buffer);
+			// decodes the chunk here rather than on the thread that first touches it
+			chunk.getMemoryUsage();
+			return chunk;
+		}
+	}
+
+	class WriteTask implements AsyncTask<Void> {
+		final long key;
+		/** The chunk the data was serialized from, taken back if it was evicted and the write fails. */
+		final VoxelChunk chunk;
+		final byte[] data;
+		AsyncResult<Void> result;
+
+		WriteTask (long key, VoxelChunk chunk, byte[] data) {
+			this.key = key;
+			this.chunk = chunk;
+			this.data = data;
+		}
+
+		@Override
+		public Void call () throws Exception {
+			int chunkX = keyX(key), chunkY = keyY(key), chunkZ = keyZ(key);
+			region(chunkX, chunkY, chunkZ, true).write(regionIndex(chunkX, chunkY, chunkZ), data);
+			return null;
+		}
+	}
+
+	/** Writes the edited chunks and closes the region files. */
+	@Override
+	public void dispose () {
+		for (Entry entry = head.next; entry != head; entry = entry.next)
+			if (entry.dirty) write(entry);
+		// waits for the queued reads and writes, the ones that failed can only be logged
+		executor.dispose();
+		checkWrites(true);
+		writing.clear();
+		for (Region region : regions)
+			region.close();
+		regions.clear();
+		resident.clear();
+		pending.clear();
+		head.previous = head.next = head;
+		memoryUsage = 0;
+	}
+
+	/** @return the chunk coordinates packed into 21 bits each */
+	static long key (int x, int y, int z) {
+		return (x & 0x1FFFFFL) | (y & 0x1FFFFFL) << 21 | (z & 0x1FFFFFL) << 42;
+	}
+
+	static int keyX (long key) {
+		return (int)(key << 43 >> 43);
+	}
+
+	static int keyY (long key) {
+		return (int)(key << 22 >> 43);
+	}
+
+	static int keyZ (long key) {
+		return (int)(key << 1 >> 43);
+	}
+
+	static int floorDiv (int value, int divisor) {
+		return value >= 0 ? value / divisor : (value + 1) / divisor - 1;
+	}
+
+	static void readFully (FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+	}
+
+	static void writeFully (FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer, position + buffer.position());
+	}
+}
@@ -0,0 +1,133 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g3d.Attributes;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.Shader;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.DirectionalLightsAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.IntAttribute;
+import com.badlogic.gdx.graphics.g3d.environment.DirectionalLight;
+import com.badlogic.gdx.graphics.g3d.shaders.BaseShader;
+import com.badlogic.gdx.graphics.g3d.shaders.DefaultShader;
+import com.badlogic.gdx.graphics.g3d.utils.RenderContext;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/** Renders chunk meshes in the {@link VoxelVertexFormat#Compact} layout. The face index stored next to the position is turned
+ * back into a normal in the vertex shader, which is used for a single directional light when the renderable has an
+ * environment. */
+public class VoxelShader extends BaseShader {
+	public static final String vertexShader = "attribute vec4 a_position;\n" //
+		+ "attribute vec4 a_color;\n" //
+		+ "uniform mat4 u_projViewTrans;\n" //
+		+ "uniform mat4 u_worldTrans;\n" //
+		+ "#ifdef lightingFlag\n" //
+		+ "uniform vec3 u_ambientLight;\n" //
+		+ "uniform vec3 u_lightColor;\n" //
+		+ "uniform vec3 u_lightDirection;\n" //
+		+ "#endif\n" //
+		+ "varying vec4 v_color;\n" //
+		+ "void main() {\n" //
+		+ "	v_color = a_color;\n" //
+		+ "#ifdef lightingFlag\n" //
+		+ "	float face = a_position.w;\n" //
+		+ "	vec3 normal = face < 0.5 ? vec3(0.0, 1.0, 0.0) : face < 1.5 ? vec3(0.0, -1.0, 0.0)\n" //
+		+ "		: face < 2.5 ? vec3(-1.0, 0.0, 0.0) : face < 3.5 ? vec3(1.0, 0.0, 0.0)\n" //
+		+ "		: face < 4.5 ? vec3(0.0, 0.0, -1.0) : vec3(0.0, 0.0, 1.0);\n" //
+		+ "	v_color.rgb *= u_ambientLight + u_lightColor * max(dot(normal, -u_lightDirection), 0.0);\n" //
+		+ "#endif\n" //
+		+ "	gl_Position = u_projViewTrans * u_worldTrans * vec4(a_position.xyz, 1.0);\n" //
+		+ "}\n";
+
+	public static final String fragmentShader = "#ifdef GL_ES\n" //
+		+ "precision mediump float;\n" //
+		+ "#endif\n" //
+		+ "varying vec4 v_color;\n" //
+		+ "void main() {\n" //
+		+ "	gl_FragColor = v_color;\n" //
+		+ "}\n";
+
+	public final int u_projViewTrans;
+	public final int u_worldTrans;
+	public final int u_ambientLight;
+	public final int u_lightColor;
+	public final int u_lightDirection;
+
+	protected final boolean lighting;
+	protected final DefaultShader.Config config;
+	private final Renderable renderable;
+
+	public VoxelShader (final Renderable renderable, final DefaultShader.Config config) {
+		this.renderable = renderable;
+		this.config = config;
+		this.lighting = renderable.environment != null;
+		u_projViewTrans = register(DefaultShader.Inputs.projViewTrans, DefaultShader.Setters.projViewTrans);
+		u_worldTrans = register(DefaultShader.Inputs.worldTrans, DefaultShader.Setters.worldTrans);
+		u_ambientLight = register("u_ambientLight");
+		u_lightColor = register("u_lightColor");
+		u_lightDirection = register("u_lightDirection");
+	}
+
+	@Override
+	public void init () {
+		String prefix = lighting ? "#define lightingFlag\n" : "";
+		ShaderProgram program = new ShaderProgram(prefix + vertexShader, prefix + fragmentShader);
+		if (!program.isCompiled()) throw new GdxRuntimeException("Couldn't compile voxel shader: " + program.getLog());
+		init(program, renderable);
+	}
+
+	@Override
+	public int compareTo (Shader other) {
+		return 0;
+	}
+
+	@Override
+	public boolean canRender (Renderable instance) {
+		return isCompact(instance) && (instance.environment != null) == lighting;
+	}
+
+	@Override
+	public void begin (Camera camera, RenderContext context) {
+		super.begin(camera, context);
+		context.setDepthTest(config.defaultDepthFunc == -1 ? DefaultShader.defaultDepthFunc : config.defaultDepthFunc);
+		context.setDepthMask(true);
+		context.setBlending(false, GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+	}
+
+	private final Color ambient = new Color();
+
+	@Override
+	public void render (Renderable renderable, Attributes combinedAttributes) {
+		IntAttribute cullFace = combinedAttributes.get(IntAttribute.class, IntAttribute.CullFace);
+		context.setCullFace(cullFace != null ? cullFace.value
+			: config.defaultCullFace == -1 ? DefaultShader.defaultCullFace : config.defaultCullFace);
+		if (lighting) {
+			ColorAttribute ambientLight = combinedAttributes.get(ColorAttribute.class, ColorAttribute.AmbientLight);
+			ambient.set(ambientLight != null ? ambientLight.color : Color.BLACK);
+			set(u_ambientLight, ambient.r, ambient.g, ambient.b);
+			DirectionalLightsAttribute lights = combinedAttributes.get(DirectionalLightsAttribute.class,
+				DirectionalLightsAttribute.Type);
+			if (lights != null && lights.lights.size > 0) {
+				DirectionalLight light = lights.lights.first();
+				set(u_lightColor, light.color.r, light.color.g, light.color.b);
+				set(u_lightDirection, light.direction);
+			} else
+				set(u_lightColor, 0, 0, 0);
+		}
+		super.render(renderable, combinedAttributes);
+	}
+
+	@Override
+	public void dispose () {
+		program.dispose();
+		super.dispose();
+	}
+
+	/** @return whether the renderable's mesh uses the {@link VoxelVertexFormat#Compact} layout */
+	public static boolean isCompact (Renderable renderable) {
+		return renderable.meshPart.mesh.getVertexAttributes().equals(VoxelVertexFormat.Compact.attributes);
+	}
+}
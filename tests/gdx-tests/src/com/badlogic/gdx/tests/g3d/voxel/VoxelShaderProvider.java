@@ -0,0 +1,24 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.Shader;
+import com.badlogic.gdx.graphics.g3d.shaders.DefaultShader;
+import com.badlogic.gdx.graphics.g3d.utils.DefaultShaderProvider;
+
+/** Creates a {@link VoxelShader} for chunk meshes in the {@link VoxelVertexFormat#Compact} layout and a {@link DefaultShader}
+ * for everything else. */
+public class VoxelShaderProvider extends DefaultShaderProvider {
+	public VoxelShaderProvider (final DefaultShader.Config config) {
+		super(config);
+	}
+
+	public VoxelShaderProvider () {
+		super();
+	}
+
+	@Override
+	protected Shader createShader (final Renderable renderable) {
+		if (VoxelShader.isCompact(renderable)) return new VoxelShader(renderable, config);
+		return super.createShader(renderable);
+	}
+}
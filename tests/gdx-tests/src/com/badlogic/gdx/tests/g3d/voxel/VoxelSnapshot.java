@@ -0,0 +1,147 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/** Saves the voxels of a {@link VoxelWorld} to a binary file and loads them back. Every chunk is stored the way it's held in
+ * memory, its palette and packed palette indices, followed by its occupancy bitset. A table after the header gives the offset of
+ * every chunk, empty chunks take no space. Loading reads the file in one piece and copies only the occupancy, which the physics
+ * needs right away, each chunk decodes its voxels from the file's bytes when they are first accessed. The file isn't memory
+ * mapped, chunks would keep the mapping open and saving over the file would fail where mapped files can't be truncated. Bodies,
+ * debris and islands aren't part of a snapshot.
+ * <p>
+ * The file is little endian. The header holds the magic, the version, the world size in chunks, the chunk size and the world's
+ * {@link VoxelWorld#palette}. The table holds the offset, the length and the number of solid voxels of every chunk, records
+ * start at multiples of 8 bytes so the packed indices are aligned. */
+public class VoxelSnapshot {
+	static final int MAGIC = 'V' | 'X' << 8 | 'W' << 16 | 'S' << 24;
+	static final int VERSION = 1;
+	/** Bytes before the chunk table. */
+	static final int HEADER_SIZE = 4 * (8 + 256);
+	static final int CELL_BYTES = (VoxelWorld.CHUNK_SIZE_X * VoxelWorld.CHUNK_SIZE_Y * VoxelWorld.CHUNK_SIZE_Z + 7) / 8;
+
+	/** Writes the voxels of the world to the file, must be called on the thread that edits the world. */
+	public static void save (VoxelWorld world, FileHandle file) {
+		int numChunks = world.numChunks;
+		int[] offsets = new int[numChunks], lengths = new int[numChunks];
+		long size = align(HEADER_SIZE + numChunks * 12L);
+		for (int i = 0; i < numChunks; i++) {
+			if (world.getSolidVoxels(i) == 0) continue;
+			offsets[i] = (int)size;
+			lengths[i] = world.chunks[i].getPackedSize() + CELL_BYTES;
+			size = align(size + lengths[i]);
+			if (size > Integer.MAX_VALUE) throw new GdxRuntimeException("World is too large for a snapshot: " + file);
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int)size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(world.chunksX);
+		buffer.putInt(world.chunksY);
+		buffer.putInt(world.chunksZ);
+		buffer.putInt(VoxelWorld.CHUNK_SIZE_X);
+		buffer.putInt(VoxelWorld.CHUNK_SIZE_Y);
+		buffer.putInt(VoxelWorld.CHUNK_SIZE_Z);
+		for (int i = 0; i < 256; i++)
+			buffer.putInt(world.palette[i]);
+		for (int i = 0; i < numChunks; i++) {
+			buffer.putInt(offsets[i]);
+			buffer.putInt(lengths[i]);
+			buffer.putInt(lengths[i] == 0 ? 0 : world.getSolidVoxels(i));
+		}
+		for (int i = 0; i < numChunks; i++) {
+			if (lengths[i] == 0) continue;
+			buffer.position(offsets[i]);
+			world.chunks[i].write(buffer);
+			world.getOccupancy(i, buffer);
+		}
+		file.writeBytes(buffer.array(), false);
+	}
+
+	/** @return a new world with the size and voxels of the snapshot */
+	public static VoxelWorld load (FileHandle file, VoxelVertexFormat vertexFormat) throws IOException {
+		ByteBuffer buffer = VoxelLoader.read(file, Long.MAX_VALUE);
+		checkHeader(buffer, file);
+		VoxelWorld world = new VoxelWorld(buffer.getInt(8), buffer.getInt(12), buffer.getInt(16), vertexFormat);
+		load(buffer, world, file);
+		return world;
+	}
+
+	/** Replaces the voxels of a world with the voxels of the snapshot, in a single edit. Must be called on the thread that edits
+	 * the world.
+	 * @throws IOException if the file isn't a valid snapshot or was saved from a world of another size, the world is left
+	 *            untouched */
+	public static void load (FileHandle file, VoxelWorld world) throws IOException {
+		ByteBuffer buffer = VoxelLoader.read(file, Long.MAX_VALUE);
+		checkHeader(buffer, file);
+		load(buffer, world, file);
+	}
+
+	private static void checkHeader (ByteBuffer buffer, FileHandle file) throws IOException {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) throw new IOException("Not a voxel world snapshot: " + file);
+		if (buffer.getInt(4) != VERSION) throw new IOException("Unsupported snapshot version " + buffer.getInt(4) + ": " + file);
+		if (buffer.getInt(20) != VoxelWorld.CHUNK_SIZE_X || buffer.getInt(24) != VoxelWorld.CHUNK_SIZE_Y
+			|| buffer.getInt(28) != VoxelWorld.CHUNK_SIZE_Z) throw new IOException("Snapshot has a different chunk size: " + file);
+	}
+
+	private static void load (ByteBuffer buffer, VoxelWorld world, FileHandle file) throws IOException {
+		int chunksX = buffer.getInt(8), chunksY = buffer.getInt(12), chunksZ = buffer.getInt(16);
+		if (chunksX != world.chunksX || chunksY != world.chunksY || chunksZ != world.chunksZ) throw new IOException(
+			"Snapshot is " + chunksX + "x" + chunksY + "x" + chunksZ + " chunks, the world " + world.chunksX + "x" + world.chunksY
+				+ "x" + world.chunksZ + ": " + file);
+		int numChunks = world.numChunks, table = HEADER_SIZE, records = table + numChunks * 12;
+		if (buffer.limit() < records) throw new IOException("Truncated snapshot: " + file);
+
+		// everything is checked before the first chunk is replaced, the chunks trust what they decode later
+		int numVoxels = VoxelWorld.CHUNK_SIZE_X * VoxelWorld.CHUNK_SIZE_Y * VoxelWorld.CHUNK_SIZE_Z;
+		for (int i = 0, t = table; i < numChunks; i++, t += 12) {
+			int offset = buffer.getInt(t), length = buffer.getInt(t + 4), solid = buffer.getInt(t + 8);
+			if (length == 0) continue;
+			if (offset < records || length < CELL_BYTES || offset > buffer.limit() - length || solid < 1
+				|| solid != countCells(buffer, offset + length - CELL_BYTES)
+				|| !VoxelChunk.isValidPacked(buffer, offset, length - CELL_BYTES, numVoxels))
+				throw new IOException("Invalid chunk " + i + " in snapshot: " + file);
+		}
+
+		for (int i = 0; i < 256; i++)
+			world.palette[i] = buffer.getInt(32 + i * 4);
+		world.beginEdit();
+		for (int i = 0, t = table; i < numChunks; i++, t += 12) {
+			int offset = buffer.getInt(t), length = buffer.getInt(t + 4);
+			if (length == 0) {
+				world.loadChunk(i, null, 0, null);
+				continue;
+			}
+			int cells = offset + length - CELL_BYTES;
+			world.loadChunk(i, slice(buffer, cells, CELL_BYTES), buffer.getInt(t + 8), slice(buffer, offset, cells - offset));
+		}
+		world.commitEdit();
+	}
+
+	/** @return the solid voxels of the occupancy bits at offset */
+	private static int countCells (ByteBuffer buffer, int offset) {
+		int count = 0;
+		for (int i = 0; i < CELL_BYTES; i += 8)
+			count += Long.bitCount(buffer.getLong(offset + i));
+		return count;
+	}
+
+	private static ByteBuffer slice (ByteBuffer buffer, int offset, int length) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.limit(offset + length);
+		slice.position(offset);
+		slice = slice.slice();
+		// slices are big endian whatever the buffer they were taken from
+		slice.order(ByteOrder.LITTLE_ENDIAN);
+		return slice;
+	}
+
+	private static long align (long offset) {
+		return offset + 7 & ~7L;
+	}
+}
@@ -58,11 +58,15 @@ public class VoxelTest extends InputAdapter implements ApplicationListener {
 	VoxelWorld voxelWorld;
     private ShapeRenderer shapeRenderer;
     private Array<VoxelPhysicsBody> activePhysicsBodies = new Array<>();
+    private final VoxelRayHit pickHit = new VoxelRayHit();
+    private VoxelDebrisRenderer debrisRenderer;
+    /** F5 сохраняет мир в этот файл, F9 загружает его обратно. */
+    private static final String SNAPSHOT_FILE = "voxel-world.snapshot";
 
 	public void create () {
 		//spriteBatch = new SpriteBatch();
 		font = new BitmapFont();
-		modelBatch = new ModelBatch();
+		modelBatch = new ModelBatch(new VoxelShaderProvider());
 		DefaultShader.defaultCullFace = GL20.GL_FRONT;
 		camera = new PerspectiveCamera(67, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
 		camera.near = 0.5f;
@@ -77,18 +81,22 @@ public class VoxelTest extends InputAdapter implements ApplicationListener {
         Gdx.gl.glDepthMask(true);
 		MathUtils.random.setSeed(0);
         try {
-            voxelWorld = loadFromVoxFile("C:\\final_all\\new\\final\\libgdx-crykn-patch-1\\tests\\gdx-tests\\src\\com\\badlogic\\gdx\\tests\\g3d\\voxel\\droid_one.vox", 10, 10, 10);
+            voxelWorld = loadFromVoxFile("C:\\final_all\\new\\final\\libgdx-crykn-patch-1\\tests\\gdx-tests\\src\\com\\badlogic\\gdx\\tests\\g3d\\voxel\\droid_one.vox", 10, 10, 10, VoxelVertexFormat.Compact);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
 
+		voxelWorld.camera = camera;
+        // без GL ES 3.0 обломки рисуются через ShapeRenderer
+        if (VoxelDebrisRenderer.isSupported()) debrisRenderer = new VoxelDebrisRenderer(voxelWorld, 1024);
+
 		float camX = voxelWorld.voxelsX / 4f;
 		float camZ = voxelWorld.voxelsZ / 4f;
 		float camY = voxelWorld.getHighest(camX, camZ);
 		camera.position.set(1f, 1f, 1f);
 		camera.lookAt(80,32,80);
 
-        Gdx.input.setInputProcessor(new InputMultiplexer(controller, new InputAdapter() {
+        Gdx.input.setInputProcessor(new InputMultiplexer(new InputAdapter() {
 //            @Override
 //            public boolean touchDown(int screenX, int screenY, int pointer, int button) {
 //                if (button == Input.Buttons.LEFT) {
@@ -111,6 +119,28 @@ public class VoxelTest extends InputAdapter implements ApplicationListener {
 //                return false;
 //            }
 @Override
+public boolean keyDown(int keycode) {
+    if (keycode == Input.Keys.P) {
+        // переключаем физику между отдельным потоком и потоком рендера
+        if (voxelWorld.isPhysicsThreadRunning()) voxelWorld.stopPhysicsThread();
+        else voxelWorld.startPhysicsThread();
+        return true;
+    }
+    if (keycode == Input.Keys.F5) {
+        VoxelSnapshot.save(voxelWorld, Gdx.files.local(SNAPSHOT_FILE));
+        return true;
+    }
+    if (keycode == Input.Keys.F9 && Gdx.files.local(SNAPSHOT_FILE).exists()) {
+        try {
+            VoxelSnapshot.load(Gdx.files.local(SNAPSHOT_FILE), voxelWorld);
+        } catch (IOException e) {
+            Gdx.app.error("VoxelTest", "Couldn't load " + SNAPSHOT_FILE, e);
+        }
+        return true;
+    }
+    return false;
+}
+@Override
 public boolean touchDown(int screenX, int screenY, int pointer, int button) {
     if (button == Input.Buttons.LEFT) {
         throwObject();
@@ -118,9 +148,16 @@ public boolean touchDown(int screenX, int screenY, int pointer, int button) {
         System.out.println("vyfyfy");
         return true;
     }
+    if (button == Input.Buttons.RIGHT) {
+        // отрываем воксель под курсором
+        Ray ray = Raycaster.getPickRay(camera, screenX, screenY);
+        if (voxelWorld.raycast(ray.origin, ray.direction, camera.far, pickHit))
+            voxelWorld.breakOff(pickHit.x, pickHit.y, pickHit.z);
+        return true;
+    }
     return false;
 }
-        }));
+        }, controller));
 
 	}
 
@@ -130,7 +167,7 @@ public boolean touchDown(int screenX, int screenY, int pointer, int button) {
 
         // Увеличиваем радиус снаряда для лучшего обнаружения столкновений
         btCollisionShape shape = new btSphereShape(0.5f);
-        btMotionState motionState = new btDefaultMotionState();
+        btMotionState motionState = new btDefaultMotionState(new Matrix4().setToTranslation(position));
 
         // Увеличиваем массу для большего воздействия
         btRigidBody.btRigidBodyConstructionInfo constructionInfo =
@@ -151,12 +188,8 @@ public boolean touchDown(int screenX, int screenY, int pointer, int button) {
             (short)(VOXEL_MASK));
     }
 
-    float accumulator = 0;
-    float step = 1/60f;
-
 	public void render () {
         ScreenUtils.clear(0.4f, 0.4f, 0.4f, 1f, true);
-        float delta = Gdx.graphics.getDeltaTime();
 
 		modelBatch.begin(camera);
 		modelBatch.render(voxelWorld, lights);
@@ -171,7 +204,6 @@ public boolean touchDown(int screenX, int screenY, int pointer, int button) {
         Gdx.gl.glEnable(GL20.GL_POLYGON_OFFSET_FILL);
         Gdx.gl.glPolygonOffset(1f, 1f);
         Gdx.gl.glDisable(GL20.GL_BLEND);
-        voxelWorld.dynamicsWorld.stepSimulation(delta);
         shapeRenderer.setProjectionMatrix(camera.combined);
         shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
 
@@ -181,9 +213,11 @@ public boolean touchDown(int screenX, int screenY, int pointer, int button) {
         btCollisionObjectArray objects = voxelWorld.dynamicsWorld.getCollisionObjectArray();
         for (int i = 0; i < objects.size(); i++) {
             btCollisionObject obj = objects.atConst(i);
+            // chunks are drawn by the voxel world, islands voxel by voxel below, debris instanced if supported
+            if (obj.getUserValue() == CHUNK_MARKER || obj.getUserValue() == ISLAND_MARKER) continue;
+            if (debrisRenderer != null && obj.getUserValue() == VOXEL_MARKER) continue;
 
-            Matrix4 transform = new Matrix4();
-            obj.getWorldTransform(transform);
+            Matrix4 transform = voxelWorld.getRenderTransform(obj, new Matrix4());
             Vector3 worldPos = transform.getTranslation(new Vector3());
 
             // Преобразуем в координаты вокселей (учитывая WORLD_SCALE)
@@ -229,8 +263,27 @@ public boolean touchDown(int screenX, int screenY, int pointer, int button) {
             );
         }
 
+        if (debrisRenderer == null) {
+            Array<VoxelConnectivity.Island> islands = voxelWorld.connectivity.getIslands();
+            for (int i = 0; i < islands.size; i++) {
+                VoxelConnectivity.Island island = islands.get(i);
+                Matrix4 transform = voxelWorld.getRenderTransform(island.body, new Matrix4());
+                for (int v = 0; v < island.size(); v++) {
+                    Vector3 center = new Vector3(island.offsets.get(v * 3), island.offsets.get(v * 3 + 1),
+                        island.offsets.get(v * 3 + 2)).mul(transform);
+                    int colorValue = island.colors.get(v);
+                    shapeRenderer.setColor(((colorValue >> 12) & 0xF) / 15f, ((colorValue >> 8) & 0xF) / 15f,
+                        ((colorValue >> 4) & 0xF) / 15f, (colorValue & 0xF) / 15f);
+                    shapeRenderer.box(center.x - 0.5f * WORLD_SCALE, center.y - 0.5f * WORLD_SCALE, center.z - 0.5f * WORLD_SCALE,
+                        WORLD_SCALE - 0.002f, WORLD_SCALE - 0.002f, WORLD_SCALE - 0.002f);
+                }
+            }
+        }
+
         Gdx.gl.glDisable(GL20.GL_POLYGON_OFFSET_FILL);
         shapeRenderer.end();
+
+        if (debrisRenderer != null) debrisRenderer.render(camera, lights);
 	}
 
 
@@ -247,7 +300,7 @@ public boolean touchDown(int screenX, int screenY, int pointer, int button) {
 
 	@Override
 	public void dispose() {
-
+        if (debrisRenderer != null) debrisRenderer.dispose();
 	}
 
 
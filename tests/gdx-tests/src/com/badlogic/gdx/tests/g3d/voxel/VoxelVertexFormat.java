@@ -0,0 +1,63 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.NumberUtils;
+
+/** Vertex layouts a {@link VoxelChunk} can be meshed into. Faces are numbered 0 top, 1 bottom, 2 left, 3 right, 4 front (-z)
+ * and 5 back (+z). */
+public enum VoxelVertexFormat {
+	/** World space float position, float normal and unpacked color, 40 bytes per vertex. Renders with the
+	 * {@link com.badlogic.gdx.graphics.g3d.shaders.DefaultShader}. */
+	Full(10, new VertexAttributes(VertexAttribute.Position(), VertexAttribute.Normal(), VertexAttribute.ColorUnpacked())) {
+		@Override
+		public int put (float[] vertices, int vertexOffset, Vector3 offset, int x, int y, int z, int face, int color) {
+			vertices[vertexOffset++] = offset.x + x;
+			vertices[vertexOffset++] = offset.y + y;
+			vertices[vertexOffset++] = offset.z + z;
+			vertices[vertexOffset++] = FACE_NORMALS[face * 3];
+			vertices[vertexOffset++] = FACE_NORMALS[face * 3 + 1];
+			vertices[vertexOffset++] = FACE_NORMALS[face * 3 + 2];
+			vertices[vertexOffset++] = ((color >> 12) & 0xF) / 15f;
+			vertices[vertexOffset++] = ((color >> 8) & 0xF) / 15f;
+			vertices[vertexOffset++] = ((color >> 4) & 0xF) / 15f;
+			vertices[vertexOffset++] = (color & 0xF) / 15f;
+			return vertexOffset;
+		}
+	},
+
+	/** Chunk local unsigned byte position with the face index in the fourth component, followed by packed color, 8 bytes per
+	 * vertex. The chunk offset is applied through the renderable's world transform, see {@link VoxelShader}. */
+	Compact(2, new VertexAttributes(new VertexAttribute(Usage.Position, 4, GL20.GL_UNSIGNED_BYTE, false,
+		ShaderProgram.POSITION_ATTRIBUTE), VertexAttribute.ColorPacked())) {
+		@Override
+		public int put (float[] vertices, int vertexOffset, Vector3 offset, int x, int y, int z, int face, int color) {
+			// the face index keeps the high byte small, so the bits never form a NaN
+			vertices[vertexOffset++] = NumberUtils.intBitsToFloat(x | y << 8 | z << 16 | face << 24);
+			int r = (color >> 12) & 0xF, g = (color >> 8) & 0xF, b = (color >> 4) & 0xF, a = color & 0xF;
+			vertices[vertexOffset++] = NumberUtils.intToFloatColor((a * 17) << 24 | (b * 17) << 16 | (g * 17) << 8 | r * 17);
+			return vertexOffset;
+		}
+	};
+
+	static final float[] FACE_NORMALS = {0, 1, 0, 0, -1, 0, -1, 0, 0, 1, 0, 0, 0, 0, -1, 0, 0, 1};
+
+	/** Number of floats per vertex. */
+	public final int vertexSize;
+	public final VertexAttributes attributes;
+
+	VoxelVertexFormat (int vertexSize, VertexAttributes attributes) {
+		this.vertexSize = vertexSize;
+		this.attributes = attributes;
+	}
+
+	/** Writes a single vertex of a face.
+	 * @param offset the chunk offset in voxels
+	 * @param x chunk local x coordinate of the vertex
+	 * @return the new vertex offset */
+	public abstract int put (float[] vertices, int vertexOffset, Vector3 offset, int x, int y, int z, int face, int color);
+}
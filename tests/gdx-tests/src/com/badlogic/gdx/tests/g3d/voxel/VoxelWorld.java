@@ -1,19 +1,28 @@
 // VoxelWorld.java
 package com.badlogic.gdx.tests.g3d.voxel;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Mesh;
-import com.badlogic.gdx.graphics.VertexAttribute;
 import com.badlogic.gdx.graphics.g3d.Material;
 import com.badlogic.gdx.graphics.g3d.Renderable;
 import com.badlogic.gdx.graphics.g3d.RenderableProvider;
+import com.badlogic.gdx.math.Frustum;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector3;
-import com.badlogic.gdx.physics.bullet.linearmath.btDefaultMotionState;
+import com.badlogic.gdx.math.collision.BoundingBox;
 import com.badlogic.gdx.physics.bullet.linearmath.btMotionState;
 import com.badlogic.gdx.physics.bullet.linearmath.btVector3;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
 import com.badlogic.gdx.utils.Pool;
 import com.badlogic.gdx.physics.bullet.Bullet;
 import com.badlogic.gdx.physics.bullet.collision.*;
@@ -26,13 +35,43 @@ public class VoxelWorld implements RenderableProvider {
 	public static final int CHUNK_SIZE_Z = 16;
 
     public static final float WORLD_SCALE = 1f;
+	/** Upper bound of the quads in a chunk mesh, reached by a checkerboard of voxels where half the voxels show all six faces.
+	 * Chunks with more than 65536 vertices get 32 bit indices. */
+	public static final int MAX_QUADS = CHUNK_SIZE_X * CHUNK_SIZE_Y * CHUNK_SIZE_Z * 3;
+	/** Largest arena range of a chunk, also the size of the mesher's vertex buffers. */
+	static final int MAX_RANGE_VERTICES = VoxelArena.roundUp(MAX_QUADS * 4);
+	/** Vertices per {@link VoxelArena} page, the most 16 bit indices address. Holds any chunk's range. */
+	public static final int ARENA_PAGE_VERTICES = 65536;
+	/** Vertices per page where 32 bit indices are supported, fewer pages mean fewer buffer binds. */
+	public static final int LARGE_ARENA_PAGE_VERTICES = 1 << 18;
+	/** Chunks per axis in a culling group, groups outside the frustum skip the tests of their chunks. */
+	public static final int CULL_GROUP_SIZE = 4;
 
 	public final VoxelChunk[] chunks;
-	public final Mesh[] meshes;
+	/** Holds the vertices of all chunks, see {@link #rangeAddress}. */
+	public final VoxelArena arena;
+	/** The arena range of each chunk, -1 until the chunk has faces. */
+	public final int[] rangeAddress;
+	/** The vertices reserved for each chunk in the {@link #arena}, at least the vertices of its mesh. */
+	public final int[] rangeVertices;
 	public final Material[] materials;
 	public final boolean[] dirty;
 	public final int[] numVertices;
-	public float[] vertices;
+	public final VoxelMesher mesher;
+	/** Result of the last frustum test per chunk, invisible chunks are neither remeshed nor rendered. */
+	public final boolean[] visible;
+	/** Camera to cull chunks against, null renders every chunk. */
+	public Camera camera;
+	/** Whether chunks that can't be reached from the camera through empty space are culled, see
+	 * {@link VoxelChunk#computeFaceVisibility()}. */
+	public boolean occlusionCulling = true;
+	private final BoundingBox[] groupBounds;
+	private final boolean[] reached;
+	private final int[] traversalQueue;
+	private final int[] entryFace;
+	private final int[] travelled;
+	private final int groupsX, groupsY, groupsZ;
+	public final VoxelVertexFormat vertexFormat;
 
 	public final int chunksX;
 	public final int chunksY;
@@ -44,6 +83,10 @@ public class VoxelWorld implements RenderableProvider {
     public static final int PROJECTILE_MARKER = 1;  // Маркер для снарядов
     public static final int VOXEL_MARKER = 2;      // Маркер для вокселей
     public static final int GROUND_MARKER = 3;     // Маркер для земли
+	/** User value of the static collision object of a chunk. */
+	public static final int CHUNK_MARKER = 4;
+	/** User value of the body of a detached group of voxels, see {@link VoxelConnectivity}. */
+	public static final int ISLAND_MARKER = 5;
 
     // Группы коллизий (должны быть степенями 2)
     public static final short GROUND_GROUP = 1 << 0;  // 1
@@ -59,22 +102,167 @@ public class VoxelWorld implements RenderableProvider {
 
 
 
+	/** RGBA8888 colors of the last .vox file loaded into the world, see {@link VoxelLoader}. Index 0 is unused. */
 	public final int[] palette = new int[256];
 	public boolean useColors = false;
-	final int[][][] voxelColors;
+
+	/** How chunk surfaces are turned into quads. */
+	public enum Meshing {
+		/** One quad per exposed voxel face, kept as a reference. */
+		PerFace,
+		/** Coplanar faces of the same color are merged into maximal rectangles. */
+		Greedy
+	}
+
+	private Meshing meshing = Meshing.Greedy;
 
     private btCollisionConfiguration collisionConfig;
     private btDispatcher dispatcher;
     private btBroadphaseInterface broadphase;
     private btConstraintSolver solver;
     public btDynamicsWorld dynamicsWorld;
+	/** Threads of the task scheduler solving the islands, 0 when the world is single threaded. */
+	private int solverThreads;
     float mass;
 
 
 
     Array<btRigidBody> physicsBodies = new Array<>();
+	/** Bodies added with the {@link #PROJECTILE_MARKER}, looked up in the voxel grid after every step. */
+	private final Array<btRigidBody> projectiles = new Array<btRigidBody>();
+	/** Index of every body in {@link #physicsBodies} and of every projectile in {@link #projectiles}, so bodies are removed by
+	 * swapping in the last one. Like the lists, only touched by the thread that steps, see {@link PhysicsCommand}. */
+	private final ObjectIntMap<btRigidBody> bodyHandles = new ObjectIntMap<btRigidBody>();
+	private final ObjectIntMap<btRigidBody> projectileHandles = new ObjectIntMap<btRigidBody>();
+	private final Array<VoxelHit> hits = new Array<VoxelHit>();
+	/** Only used by the thread that steps, {@link #applyHits()} hands the hits back through {@link #usedHits}. */
+	private final Pool<VoxelHit> hitPool = new Pool<VoxelHit>() {
+		@Override
+		protected VoxelHit newObject () {
+			return new VoxelHit();
+		}
+	};
+	/** The static collision object of each chunk, its {@link btVoxelShape} reads the chunk's bitset in
+	 * {@link #physicsOccupancy}. */
+	public final btCollisionObject[] chunkBodies;
+	/** The solid voxels as edited, read by the raycasts. */
+	private final VoxelOccupancy occupancy;
+	/** The copy of {@link #occupancy} the chunks' collision shapes and the projectile lookup read. It's only written before a
+	 * step, so edits never race the step. */
+	private final VoxelOccupancy physicsOccupancy;
+	/** Occupancy bitset of each chunk, see {@link VoxelOccupancy#cells}. */
+	private final ByteBuffer[] chunkCells;
+	/** Number of solid voxels of each chunk, see {@link VoxelOccupancy#solidVoxels}. */
+	private final int[] solidVoxels;
+	/** Chunks whose occupancy the physics picks up before its next step, guarded by {@link #handoffLock}. */
+	public final boolean[] collisionDirty;
+	/** Chunks whose collision bounds the current step updates. */
+	private final IntArray collisionChunks = new IntArray();
+	/** Length of a physics step in seconds, the simulation advances in steps of this size whatever the frame rate. */
+	public float fixedTimeStep = 1 / 60f;
+	/** Maximum number of steps per {@link #update(float)}, time beyond that is dropped so a slow frame doesn't make the next one
+	 * slower. */
+	public int maxSubSteps = 4;
+	/** Number of steps taken by the last {@link #update(float)}. */
+	public int lastSubSteps;
+	/** Guards what the thread editing the world and the thread stepping hand each other: {@link #collisionDirty}, the queued
+	 * {@link #commands} and the hits. Only held to copy or swap them, never during a step, see {@link #startPhysicsThread()}. */
+	private final Object handoffLock = new Object();
+	/** Changes of the physics world queued for the next step, and the ones the step applies. */
+	private Array<PhysicsCommand> commands = new Array<PhysicsCommand>(), appliedCommands = new Array<PhysicsCommand>();
+	private final Pool<PhysicsCommand> commandPool = new Pool<PhysicsCommand>() {
+		@Override
+		protected PhysicsCommand newObject () {
+			return new PhysicsCommand();
+		}
+	};
+	private Thread physicsThread;
+	private volatile boolean physicsRunning;
+	/** Three buffers of body transforms, the physics thread writes one, the render thread reads one and the latest finished one
+	 * waits in {@link #latestSnapshot}, so neither side ever blocks or sees a buffer being written. */
+	private final TransformSnapshot[] snapshots = {new TransformSnapshot(), new TransformSnapshot(), new TransformSnapshot()};
+	/** Index of the latest finished snapshot, or'ed with {@link #SNAPSHOT_FRESH} until the render thread takes it. */
+	private final AtomicInteger latestSnapshot = new AtomicInteger(0);
+	private static final int SNAPSHOT_FRESH = 4;
+	private int backSnapshot = 1, frontSnapshot = 2;
+	/** Hits found by the last step, handed to the thread calling {@link #update(float)} in {@link #pendingHits}, which gives
+	 * them back in {@link #usedHits} once it's done with them. */
+	private final Array<VoxelHit> stepHits = new Array<VoxelHit>();
+	private final Array<VoxelHit> pendingHits = new Array<VoxelHit>(), usedHits = new Array<VoxelHit>();
+	private final Matrix4 physicsTransform = new Matrix4();
+	private final Vector3 physicsVector = new Vector3();
+	/** Number of open {@link #beginEdit()} calls. */
+	private int editDepth;
+	/** Chunks touched by the open edit, they are marked dirty on {@link #commitEdit()}. */
+	private final boolean[] pendingDirty;
+	private final boolean[] pendingCollision;
+	private final IntArray pendingChunks = new IntArray();
+	/** Voxels broken off the chunks. */
+	public final VoxelDebris debris;
+	/** Detaches the voxels that lost their connection to the ground. */
+	public final VoxelConnectivity connectivity;
+	private final Matrix4 tmpTransform = new Matrix4();
+	private final Vector3 tmpVector = new Vector3();
+	/** Only used on the render thread by {@link #getRenderTransform(btCollisionObject, float[], int)}. */
+	private final Matrix4 renderTransform = new Matrix4();
+
+	/** Transforms of the world's bodies after a physics step, 16 floats per body, and their activation states. */
+	static class TransformSnapshot {
+		/** Slot of every body, written with the transforms so lookups don't depend on the live order of the bodies. */
+		final ObjectIntMap<btCollisionObject> slots = new ObjectIntMap<btCollisionObject>();
+		float[] transforms = new float[0];
+		/** See {@link Collision#ACTIVE_TAG}. */
+		int[] states = new int[0];
+
+		void ensureCapacity (int capacity) {
+			if (states.length >= capacity) return;
+			capacity = Math.max(capacity, states.length * 2);
+			transforms = Arrays.copyOf(transforms, capacity * 16);
+			states = Arrays.copyOf(states, capacity);
+		}
+
+		void clear () {
+			slots.clear();
+		}
+	}
+
+	/** A change of the physics world. Applied right away without the physics thread, otherwise queued and applied by the physics
+	 * thread before its next step, in the order the changes were made. Bodies in the world are only touched this way, so the
+	 * thread editing the world never waits for a step. */
+	static class PhysicsCommand implements Pool.Poolable {
+		static final int ADD = 0, REMOVE = 1, PLACE = 2, IMPULSE = 3, DISPOSE = 4;
+
+		int type;
+		btRigidBody body;
+		short group, mask;
+		/** The position of a {@link #PLACE}, the impulse of an {@link #IMPULSE}. */
+		final Vector3 vector = new Vector3();
+		Disposable disposable;
+
+		@Override
+		public void reset () {
+			body = null;
+			disposable = null;
+		}
+	}
 
 	public VoxelWorld( int chunksX, int chunksY, int chunksZ) {
+		this(chunksX, chunksY, chunksZ, VoxelVertexFormat.Full);
+	}
+
+	/** @param vertexFormat the chunk mesh layout, {@link VoxelVertexFormat#Compact} meshes need a {@link VoxelShaderProvider} for
+	 *           lighting */
+	public VoxelWorld (int chunksX, int chunksY, int chunksZ, VoxelVertexFormat vertexFormat) {
+		this(chunksX, chunksY, chunksZ, vertexFormat, 0);
+	}
+
+	/** @param vertexFormat the chunk mesh layout, {@link VoxelVertexFormat#Compact} meshes need a {@link VoxelShaderProvider} for
+	 *           lighting
+	 * @param solverThreads the number of threads that solve the simulation islands with a {@link btDiscreteDynamicsWorldMt}, 0 for
+	 *           the single threaded {@link btDiscreteDynamicsWorld}. Sets the global Bullet task scheduler, see
+	 *           {@link Bullet#setTaskScheduler(int)}. */
+	public VoxelWorld (int chunksX, int chunksY, int chunksZ, VoxelVertexFormat vertexFormat, int solverThreads) {
+		this.vertexFormat = vertexFormat;
 		this.chunksX = chunksX;
 		this.chunksY = chunksY;
 		this.chunksZ = chunksZ;
@@ -83,11 +271,26 @@ public class VoxelWorld implements RenderableProvider {
 		this.voxelsY = chunksY * CHUNK_SIZE_Y;
 		this.voxelsZ = chunksZ * CHUNK_SIZE_Z;
 		this.chunks = new VoxelChunk[numChunks];
-		this.meshes = new Mesh[numChunks];
+		int pageVertices = VoxelArena.supports32BitIndices() ? LARGE_ARENA_PAGE_VERTICES : ARENA_PAGE_VERTICES;
+		this.arena = new VoxelArena(vertexFormat.attributes, Math.max(MAX_RANGE_VERTICES, pageVertices));
+		this.rangeAddress = new int[numChunks];
+		this.rangeVertices = new int[numChunks];
+		this.chunkBodies = new btCollisionObject[numChunks];
+		this.occupancy = new VoxelOccupancy(chunksX, chunksY, chunksZ);
+		this.physicsOccupancy = new VoxelOccupancy(chunksX, chunksY, chunksZ);
+		this.chunkCells = occupancy.cells;
+		this.solidVoxels = occupancy.solidVoxels;
+		this.collisionDirty = new boolean[numChunks];
+		this.pendingDirty = new boolean[numChunks];
+		this.pendingCollision = new boolean[numChunks];
 		this.materials = new Material[numChunks];
 		this.dirty = new boolean[numChunks];
 		this.numVertices = new int[numChunks];
-		this.voxelColors = new int[voxelsX][voxelsY][voxelsZ];
+		this.visible = new boolean[numChunks];
+		this.reached = new boolean[numChunks];
+		this.traversalQueue = new int[numChunks];
+		this.entryFace = new int[numChunks];
+		this.travelled = new int[numChunks];
         float mass = 0f;
 
 
@@ -97,25 +300,52 @@ public class VoxelWorld implements RenderableProvider {
 			for (int z = 0; z < chunksZ; z++) {
 				for (int x = 0; x < chunksX; x++) {
 					VoxelChunk chunk = new VoxelChunk(CHUNK_SIZE_X, CHUNK_SIZE_Y, CHUNK_SIZE_Z);
-					chunk.offset.set(x * CHUNK_SIZE_X, y * CHUNK_SIZE_Y, z * CHUNK_SIZE_Z);
+					chunk.setOffset(x * CHUNK_SIZE_X, y * CHUNK_SIZE_Y, z * CHUNK_SIZE_Z);
 					chunks[index] = chunk;
 					dirty[index] = true;
 					numVertices[index] = 0;
+					rangeAddress[index] = -1;
 					index++;
 				}
 			}
 		}
 
-		createMeshesAndMaterials();
+		groupsX = (chunksX + CULL_GROUP_SIZE - 1) / CULL_GROUP_SIZE;
+		groupsY = (chunksY + CULL_GROUP_SIZE - 1) / CULL_GROUP_SIZE;
+		groupsZ = (chunksZ + CULL_GROUP_SIZE - 1) / CULL_GROUP_SIZE;
+		groupBounds = new BoundingBox[groupsX * groupsY * groupsZ];
+		for (int gy = 0, g = 0; gy < groupsY; gy++) {
+			for (int gz = 0; gz < groupsZ; gz++) {
+				for (int gx = 0; gx < groupsX; gx++, g++) {
+					BoundingBox bounds = groupBounds[g] = new BoundingBox().inf();
+					for (int y = gy * CULL_GROUP_SIZE; y < Math.min(chunksY, (gy + 1) * CULL_GROUP_SIZE); y++)
+						for (int z = gz * CULL_GROUP_SIZE; z < Math.min(chunksZ, (gz + 1) * CULL_GROUP_SIZE); z++)
+							for (int x = gx * CULL_GROUP_SIZE; x < Math.min(chunksX, (gx + 1) * CULL_GROUP_SIZE); x++)
+								bounds.ext(chunks[x + z * chunksX + y * chunksX * chunksZ].bounds);
+				}
+			}
+		}
+
+		createMaterials();
+		mesher = new VoxelMesher(this, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
 
         Bullet.init();
         collisionConfig = new btDefaultCollisionConfiguration();
         dispatcher = new btCollisionDispatcher(collisionConfig);
         broadphase = new btDbvtBroadphase();
-        solver = new btSequentialImpulseConstraintSolver();
-        dynamicsWorld = new btDiscreteDynamicsWorld(dispatcher, broadphase, solver, collisionConfig);
+		if (solverThreads > 0) {
+			// one solver per thread, islands solved concurrently pick a free solver from the pool
+			this.solverThreads = Bullet.setTaskScheduler(solverThreads).getNumThreads();
+			btConstraintSolverPoolMt solverPool = new btConstraintSolverPoolMt(this.solverThreads);
+			solver = solverPool;
+			dynamicsWorld = new btDiscreteDynamicsWorldMt(dispatcher, broadphase, solverPool, collisionConfig);
+		} else {
+			solver = new btSequentialImpulseConstraintSolver();
+			dynamicsWorld = new btDiscreteDynamicsWorld(dispatcher, broadphase, solver, collisionConfig);
+		}
         dynamicsWorld.setGravity(new Vector3(0, -9.8f, 0));
-        //dynamicsWorld.setContactListener(new VoxelContactListener(this));
+		debris = new VoxelDebris(this);
+		connectivity = new VoxelConnectivity(this);
         //dynamicsWorld.addRigidBody(groundBody, STATIC_GROUP, PROJECTILE_MASK);
         btBoxShape groundShape = new btBoxShape(new Vector3(100, 1, 100));
         btRigidBody.btRigidBodyConstructionInfo groundInfo =
@@ -129,108 +359,269 @@ public class VoxelWorld implements RenderableProvider {
         // Добавляем в мир
         this.addBody(ground, GROUND_GROUP, PROJECTILE_MASK);
 
-
+		createChunkBodies();
 	}
 
+	/** Advances the physics by the frame time in steps of {@link #fixedTimeStep}. Bullet keeps the remainder for the next frame
+	 * and interpolates the motion states of rigid bodies between the last two steps, see
+	 * {@link #getRenderTransform(btCollisionObject, Matrix4)}. With the physics thread running the frame time is ignored, only
+	 * the latest transforms are picked up. In both cases the voxels hit by projectiles are broken off, islands that lost their
+	 * connection to the ground are detached and settled debris is retired here. */
     public void update(float deltaTime) {
-        dynamicsWorld.stepSimulation(deltaTime);
-        checkProjectileCollisions();
-
-       // VoxelContactListener callback = new VoxelContactListener(this);
-        //dynamicsWorld.contactTest(callback);
-        //callback.dispose();
+		if (physicsThread == null)
+			step(deltaTime);
+		else if ((latestSnapshot.get() & SNAPSHOT_FRESH) != 0) //
+			frontSnapshot = latestSnapshot.getAndSet(frontSnapshot) & ~SNAPSHOT_FRESH;
+		applyHits();
+		connectivity.update();
+		debris.update(deltaTime);
     }
 
-    public void checkProjectileCollisions() {
-        // Получаем все объекты в мире
-        btCollisionObjectArray objects = dynamicsWorld.getCollisionObjectArray();
-
-        // Собираем снаряды и воксели в отдельные списки
-        Array<btRigidBody> projectiles = new Array<>();
-        Array<btRigidBody> voxels = new Array<>();
-
-        for (int i = 0; i < objects.size(); i++) {
-            btCollisionObject obj = objects.atConst(i);
-            int userValue = obj.getUserValue();
-            //System.out.println("Object " + i + " has userValue: " + userValue);
-            if (obj.getUserValue() == PROJECTILE_MARKER) {
-                projectiles.add((btRigidBody)obj);
-            } else if (obj.getUserValue() == VOXEL_MARKER) {
-                voxels.add((btRigidBody)obj);
-            }
-        }
-        System.out.println(projectiles.size);
-        System.out.println(voxels.size);
-
-        // Проверяем столкновения между снарядами и вокселями
-        for (btRigidBody projectile : projectiles) {
-            for (btRigidBody voxel : voxels) {
-                if (checkObjectsCollision(projectile, voxel)) {
-                    handleCollision(projectile, voxel);
-                    break; // Обрабатываем только одно столкновение за кадр
-                }
-            }
-        }
-    }
+	private void step (float deltaTime) {
+		applyCommands();
+		updateCollisionShapes();
+		lastSubSteps = dynamicsWorld.stepSimulation(deltaTime, maxSubSteps, fixedTimeStep);
+		if (lastSubSteps > 0) checkProjectileCollisions();
+		synchronized (handoffLock) {
+			pendingHits.addAll(stepHits);
+			hitPool.freeAll(usedHits);
+			usedHits.clear();
+		}
+		stepHits.clear();
+	}
 
-    private boolean checkObjectsCollision(btRigidBody obj1, btRigidBody obj2) {
-        // Получаем позиции объектов
-        Vector3 pos1 = new Vector3();
-        Vector3 pos2 = new Vector3();
-        Matrix4 transform = new Matrix4();
-        obj1.getWorldTransform(transform);
-        pos1 = transform.getTranslation(new Vector3());
-        obj2.getWorldTransform(transform);
-        pos2 = transform.getTranslation(new Vector3());
+	/** Starts stepping the physics on a thread of its own at the rate of {@link #fixedTimeStep}, so it overlaps rendering. After
+	 * every step the interpolated transforms and activation states of all bodies are copied to a snapshot, which
+	 * {@link #getRenderTransform(btCollisionObject, Matrix4)} reads without locking. The world's methods may still be called
+	 * from the render thread, edits reach the physics through {@link #physicsOccupancy} and changes of bodies are queued, see
+	 * {@link PhysicsCommand}. Neither waits for the current step. */
+	public void startPhysicsThread () {
+		if (physicsThread != null) return;
+		physicsRunning = true;
+		physicsThread = new Thread(new Runnable() {
+			@Override
+			public void run () {
+				long lastTime = System.nanoTime();
+				while (physicsRunning) {
+					long time = System.nanoTime();
+					step((time - lastTime) / 1000000000f);
+					lastTime = time;
+					writeSnapshot(snapshots[backSnapshot]);
+					backSnapshot = latestSnapshot.getAndSet(backSnapshot | SNAPSHOT_FRESH) & ~SNAPSHOT_FRESH;
+					long sleep = (long)(fixedTimeStep * 1000) - (System.nanoTime() - time) / 1000000;
+					if (sleep > 0) {
+						try {
+							Thread.sleep(sleep);
+						} catch (InterruptedException ignored) {
+						}
+					}
+				}
+			}
+		}, "VoxelPhysics");
+		physicsThread.setDaemon(true);
+		physicsThread.start();
+	}
 
+	/** Stops the thread started by {@link #startPhysicsThread()} and waits for its last step, the changes queued since are
+	 * applied right away. After that {@link #update(float)} steps the physics again. */
+	public void stopPhysicsThread () {
+		if (physicsThread == null) return;
+		physicsRunning = false;
+		physicsThread.interrupt();
+		try {
+			physicsThread.join();
+		} catch (InterruptedException ignored) {
+		}
+		physicsThread = null;
+		applyCommands();
+	}
 
-        // Простая проверка расстояния (можно улучшить)
-        float distance = pos1.dst(pos2);
-        float collisionDistance = WORLD_SCALE * 1.5f; // Эмпирическое значение
+	public boolean isPhysicsThreadRunning () {
+		return physicsThread != null;
+	}
 
-        return distance < collisionDistance;
-    }
+	/** @return the number of threads solving the simulation islands, 0 when the world is single threaded */
+	public int getSolverThreads () {
+		return solverThreads;
+	}
 
-    private void handleCollision(btRigidBody projectile, btRigidBody voxel) {
-        // Получаем данные вокселя
-        VoxelData data = decodeVoxelData(voxel.getUserPointer());
+	/** Copies the transforms of all bodies, interpolated where they have a motion state, and their activation states. */
+	private void writeSnapshot (TransformSnapshot snapshot) {
+		snapshot.ensureCapacity(physicsBodies.size);
+		snapshot.slots.clear();
+		for (int i = 0; i < physicsBodies.size; i++) {
+			btRigidBody body = physicsBodies.get(i);
+			btMotionState motionState = body.getMotionState();
+			if (motionState != null)
+				motionState.getWorldTransform(physicsTransform);
+			else
+				body.getWorldTransform(physicsTransform);
+			snapshot.slots.put(body, i);
+			snapshot.states[i] = body.getActivationState();
+			System.arraycopy(physicsTransform.val, 0, snapshot.transforms, i * 16, 16);
+		}
+	}
 
-        // Получаем скорость снаряда
-        Vector3 projectileVel = new Vector3();
-        projectileVel = projectile.getLinearVelocity();
+	/** Finds the projectiles that reached a solid voxel in the last step, the voxels are broken off by the next
+	 * {@link #update(float)}. Called by the thread that steps. */
+	private void checkProjectileCollisions () {
+		for (int i = 0; i < projectiles.size; i++)
+			findHit(projectiles.get(i));
+	}
 
-        // Вычисляем направление и силу удара
-        Vector3 hitDirection = projectileVel.cpy().nor();
-        float forceMagnitude = projectileVel.len() * 5f; // Усиливаем эффект
+	/** Takes the hits found since the last update and breaks their voxels off. */
+	private void applyHits () {
+		synchronized (handoffLock) {
+			usedHits.addAll(hits);
+			hits.clear();
+			hits.addAll(pendingHits);
+			pendingHits.clear();
+		}
+		for (int i = 0; i < hits.size; i++)
+			handleCollision(hits.get(i));
+	}
 
-        // Применяем импульс к вокселю
-        Vector3 impulse = hitDirection.scl(forceMagnitude);
-        voxel.applyCentralImpulse(impulse);
+	/** @return the hits of the last {@link #update(float)}, the instances are reused by the next one */
+	public Array<VoxelHit> getHits () {
+		return hits;
+	}
 
-        // Делаем воксель динамическим (если он был статичным)
-        voxel.setMassProps(1f, new Vector3()); // Масса 1
-        voxel.setActivationState(Collision.ACTIVE_TAG);
+	/** Looks up the voxels around the projectile in the chunk grid and records a hit for the first solid one within reach. */
+	private void findHit (btRigidBody projectile) {
+		projectile.getWorldTransform(physicsTransform);
+		Vector3 position = physicsTransform.getTranslation(physicsVector);
+		float collisionDistance = WORLD_SCALE * 1.5f; // Эмпирическое значение
+		int cx = MathUtils.floor(position.x / WORLD_SCALE);
+		int cy = MathUtils.floor(position.y / WORLD_SCALE);
+		int cz = MathUtils.floor(position.z / WORLD_SCALE);
+		for (int y = cy - 1; y <= cy + 1; y++) {
+			for (int z = cz - 1; z <= cz + 1; z++) {
+				for (int x = cx - 1; x <= cx + 1; x++) {
+					if (!physicsOccupancy.isSolid(x, y, z)) continue;
+					float dx = (x + 0.5f) * WORLD_SCALE - position.x;
+					float dy = (y + 0.5f) * WORLD_SCALE - position.y;
+					float dz = (z + 0.5f) * WORLD_SCALE - position.z;
+					if (dx * dx + dy * dy + dz * dz >= collisionDistance * collisionDistance) continue;
+					VoxelHit hit = hitPool.obtain();
+					hit.projectile = projectile;
+					hit.x = x;
+					hit.y = y;
+					hit.z = z;
+					hit.velocity.set(projectile.getLinearVelocity());
+					stepHits.add(hit);
+					return; // Обрабатываем только одно столкновение за кадр
+				}
+			}
+		}
+	}
 
-        // Удаляем снаряд
-        //removeBody(projectile);
+    private void handleCollision(VoxelHit hit) {
+		// another projectile may have broken the voxel off in the same step
+		if (get(hit.x, hit.y, hit.z) == 0) return;
 
-        System.out.printf("Voxel at [%d,%d,%d] hit with force %.2f\n",
-            data.x, data.y, data.z, forceMagnitude);
+        // Вычисляем направление и силу удара
+        float forceMagnitude = hit.velocity.len() * 5f; // Усиливаем эффект
+
+        // Отрываем воксель от чанка и делаем его динамическим
+		btRigidBody voxel = breakOff(hit.x, hit.y, hit.z);
+		applyImpulse(voxel, tmpVector.set(hit.velocity).nor().scl(forceMagnitude));
     }
 
-    public void addPhysicsBody(btRigidBody body) {
-        dynamicsWorld.addRigidBody(body);
-        System.out.println("Bodies in world: " + dynamicsWorld.getNumCollisionObjects());
-        physicsBodies.add(body);
+	/** Removes a voxel from its chunk and adds it as a dynamic body with the voxel's color, see {@link VoxelDebris}.
+	 * @return the body, valid until the debris is retired. While the physics thread runs it's added before the next step, change
+	 *         it with {@link #applyImpulse(btRigidBody, Vector3)}. */
+	public btRigidBody breakOff (int x, int y, int z) {
+		byte type = get(x, y, z);
+		int color = getColor(x, y, z);
+		setVoxelWithColor(x, y, z, (byte)0, 0);
+		return debris.spawn(x, y, z, type, color);
+	}
 
-    }
+	/** Adds a static collision object for every chunk. Its shape tests other objects against the solid voxels of the chunk
+	 * without any per voxel native objects, edits only change the chunk's bitset and bounds. */
+	private void createChunkBodies () {
+		int bytes = (CHUNK_SIZE_X * CHUNK_SIZE_Y * CHUNK_SIZE_Z + 7) / 8;
+		for (int i = 0; i < numChunks; i++) {
+			VoxelChunk chunk = chunks[i];
+			chunkCells[i] = BufferUtils.newByteBuffer(bytes);
+			physicsOccupancy.cells[i] = BufferUtils.newByteBuffer(bytes);
+			btVoxelShape shape = new btVoxelShape(chunk.width, chunk.height, chunk.depth, physicsOccupancy.cells[i], WORLD_SCALE);
+			btCollisionObject body = new btCollisionObject();
+			body.setCollisionShape(shape);
+			body.setCollisionFlags(body.getCollisionFlags() | btCollisionObject.CollisionFlags.CF_STATIC_OBJECT);
+			body.setWorldTransform(tmpTransform.setToTranslation(chunk.offset).scl(WORLD_SCALE));
+			body.setUserValue(CHUNK_MARKER);
+			body.setUserPointer(i);
+			dynamicsWorld.addCollisionObject(body, VOXEL_GROUP, PROJECTILE_MASK);
+			chunkBodies[i] = body;
+		}
+	}
+
+	/** Copies the occupancy of the chunks edited since the last step to {@link #physicsOccupancy} and shrinks or grows the bounds
+	 * of their collision shapes to their solid voxels. */
+	private void updateCollisionShapes () {
+		synchronized (handoffLock) {
+			for (int i = 0; i < numChunks; i++) {
+				if (!collisionDirty[i]) continue;
+				collisionDirty[i] = false;
+				ByteBuffer cells = chunkCells[i], target = physicsOccupancy.cells[i];
+				for (int b = 0, n = target.capacity(); b < n; b += 8)
+					target.putLong(b, cells.getLong(b));
+				physicsOccupancy.solidVoxels[i] = solidVoxels[i];
+				collisionChunks.add(i);
+			}
+		}
+		for (int i = 0; i < collisionChunks.size; i++) {
+			btCollisionObject body = chunkBodies[collisionChunks.get(i)];
+			((btVoxelShape)body.getCollisionShape()).updateBounds();
+			dynamicsWorld.updateSingleAabb(body);
+		}
+		collisionChunks.clear();
+	}
+
+	/** Applies the changes of the physics world queued since the last step. */
+	private void applyCommands () {
+		synchronized (handoffLock) {
+			Array<PhysicsCommand> queued = commands;
+			commands = appliedCommands;
+			appliedCommands = queued;
+		}
+		for (int i = 0; i < appliedCommands.size; i++)
+			apply(appliedCommands.get(i));
+		synchronized (handoffLock) {
+			commandPool.freeAll(appliedCommands);
+		}
+		appliedCommands.clear();
+	}
 
     public void dispose() {
+		stopPhysicsThread();
+		connectivity.dispose();
+		debris.dispose();
+        mesher.dispose();
+        arena.dispose();
         for (btRigidBody body : physicsBodies) {
             dynamicsWorld.removeRigidBody(body);
             body.dispose();
         }
         physicsBodies.clear();
+		projectiles.clear();
+		bodyHandles.clear();
+		projectileHandles.clear();
+		hitPool.freeAll(hits);
+		hits.clear();
+		hitPool.freeAll(pendingHits);
+		pendingHits.clear();
+		hitPool.freeAll(usedHits);
+		usedHits.clear();
+		for (TransformSnapshot snapshot : snapshots)
+			snapshot.clear();
+		for (int i = 0; i < numChunks; i++) {
+			btCollisionObject body = chunkBodies[i];
+			dynamicsWorld.removeCollisionObject(body);
+			body.dispose();
+			chunkBodies[i] = null;
+		}
 
         dynamicsWorld.dispose();
         solver.dispose();
@@ -240,92 +631,186 @@ public class VoxelWorld implements RenderableProvider {
     }
 
 
-	private void createMeshesAndMaterials() {
-		VertexAttribute[] attributes = new VertexAttribute[] {
-				VertexAttribute.Position(),
-				VertexAttribute.Normal(),
-				VertexAttribute.ColorUnpacked()
-		};
-
-		int indicesCount = CHUNK_SIZE_X * CHUNK_SIZE_Y * CHUNK_SIZE_Z * 6 * 6 / 3;
-		short[] indices = new short[indicesCount];
-		short vertexIndex = 0;
+	private void createMaterials() {
+		for (int i = 0; i < numChunks; i++)
+			materials[i] = new Material();
+	}
 
-		for (int i = 0; i < indicesCount; i += 6, vertexIndex += 4) {
-			indices[i] = vertexIndex;
-			indices[i+1] = (short)(vertexIndex + 1);
-			indices[i+2] = (short)(vertexIndex + 2);
-			indices[i+3] = (short)(vertexIndex + 2);
-			indices[i+4] = (short)(vertexIndex + 3);
-			indices[i+5] = vertexIndex;
+	/** Uploads vertices built by the {@link VoxelMesher} to the chunk's range in the {@link #arena}. A range is reserved with a
+	 * quarter of slack on the first upload with vertices and replaced once a remesh outgrows it or needs less than a quarter of
+	 * it. Chunks that become empty give their range back.
+	 * @param vertices holds at least {@link #MAX_RANGE_VERTICES} vertices, the slack behind the chunk's vertices is cleared */
+	void uploadMesh (int index, float[] vertices, int numVerts) {
+		numVertices[index] = numVerts / 4 * 6;
+		int capacity = rangeVertices[index];
+		if (numVerts == 0) {
+			if (capacity > 0) arena.free(rangeAddress[index], capacity);
+			rangeAddress[index] = -1;
+			rangeVertices[index] = 0;
+			return;
 		}
-
-		for (int i = 0; i < numChunks; i++) {
-			meshes[i] = new Mesh(true,
-					CHUNK_SIZE_X * CHUNK_SIZE_Y * CHUNK_SIZE_Z * 6 * 4,
-					CHUNK_SIZE_X * CHUNK_SIZE_Y * CHUNK_SIZE_Z * 36 / 3,
-					attributes);
-
-			meshes[i].setIndices(indices);
-
-			materials[i] = new Material();
+		if (numVerts > capacity || numVerts < capacity / 4) {
+			if (capacity > 0) arena.free(rangeAddress[index], capacity);
+			capacity = Math.min(MAX_RANGE_VERTICES, VoxelArena.roundUp(numVerts + numVerts / 4));
+			rangeAddress[index] = arena.allocate(capacity);
+			rangeVertices[index] = capacity;
 		}
+		// zeroed slack collapses into degenerate quads when neighboring ranges are drawn together
+		int vertexSize = vertexFormat.vertexSize;
+		Arrays.fill(vertices, numVerts * vertexSize, capacity * vertexSize, 0);
+		arena.update(rangeAddress[index], vertices, capacity);
+	}
+
+	public Meshing getMeshing () {
+		return meshing;
+	}
 
-		this.vertices = new float[(7) * 6 * CHUNK_SIZE_X * CHUNK_SIZE_Y * CHUNK_SIZE_Z];
+	/** Switches the mesher and remeshes every chunk on the next {@link #getRenderables(Array, Pool)}. */
+	public void setMeshing (Meshing meshing) {
+		if (this.meshing == meshing) return;
+		this.meshing = meshing;
+		for (int i = 0; i < numChunks; i++)
+			dirty[i] = true;
 	}
 
+	/** Sets a voxel of the chunk grid. Solid voxels are part of their chunk's static collision shape, which picks them up before
+	 * the next physics step. Many writes should be wrapped in {@link #beginEdit()} and {@link #commitEdit()}. */
     public void setVoxelWithColor(int x, int y, int z, byte voxelType, int color) {
         if (x < 0 || x >= voxelsX || y < 0 || y >= voxelsY || z < 0 || z >= voxelsZ) return;
+		writeVoxel(x, y, z, voxelType, color);
+    }
 
-        removeVoxelBody(x, y, z); // Удаляем старое тело если было
+	/** Sets scattered voxels in a single edit, the touched chunks are handed to the physics once for the whole batch rather than
+	 * once per voxel. This is the path loaders write whole models through.
+	 * @param cells world cell indices, {@code x + z * voxelsX + y * voxelsX * voxelsZ}, negative cells are skipped
+	 * @param colors the 4444 color of every voxel */
+	public void setVoxels (int[] cells, int[] colors, int count, byte voxelType) {
+		int layer = voxelsX * voxelsZ, numCells = layer * voxelsY;
+		beginEdit();
+		for (int i = 0; i < count; i++) {
+			int cell = cells[i];
+			if (cell < 0 || cell >= numCells) continue;
+			writeVoxel(cell % voxelsX, cell / layer, cell / voxelsX % voxelsZ, voxelType, colors[i]);
+		}
+		commitEdit();
+	}
 
-        if (voxelType != 0) {
-            btBoxShape shape = new btBoxShape(new Vector3(0.5f, 0.5f, 0.5f).scl(WORLD_SCALE));
+	/** Writes a voxel into its chunk and the occupancy, the caller checked the bounds. */
+	private void writeVoxel (int x, int y, int z, byte voxelType, int color) {
+        int chunkIndex = chunkIndexAt(x, y, z);
+        int lx = x % CHUNK_SIZE_X, ly = y % CHUNK_SIZE_Y, lz = z % CHUNK_SIZE_Z;
+		if (voxelType == 0 && chunks[chunkIndex].get(lx, ly, lz) != 0) connectivity.voxelRemoved(x, y, z);
+        chunks[chunkIndex].set(lx, ly, lz, voxelType, color);
+		int cell = lx + lz * CHUNK_SIZE_X + ly * CHUNK_SIZE_X * CHUNK_SIZE_Z;
+		ByteBuffer cells = chunkCells[chunkIndex];
+		int bits = cells.get(cell >> 3);
+		boolean solid = (bits & 1 << (cell & 7)) != 0;
+		if (voxelType != 0 && !solid)
+			solidVoxels[chunkIndex]++;
+		else if (voxelType == 0 && solid) solidVoxels[chunkIndex]--;
+		cells.put(cell >> 3, (byte)(voxelType != 0 ? bits | 1 << (cell & 7) : bits & ~(1 << (cell & 7))));
+		// Обновляем чанк (если используете чанковую систему)
+		updateChunkAt(x, y, z);
+	}
 
-            btMotionState motionState = new btDefaultMotionState();
-            btRigidBody.btRigidBodyConstructionInfo info =
-                new btRigidBody.btRigidBodyConstructionInfo(1f, motionState, shape);
+	/** @return the number of solid voxels of a chunk */
+	int getSolidVoxels (int chunkIndex) {
+		return solidVoxels[chunkIndex];
+	}
 
-            btRigidBody body = new btRigidBody(info);
-            Vector3 pos = new Vector3(x + 0.5f, y + 0.5f, z + 0.5f).scl(WORLD_SCALE);
-            body.setWorldTransform(new Matrix4().setToTranslation(pos));
+	/** Puts the occupancy bitset of a chunk at the buffer's position, must be called on the thread that edits the world. */
+	void getOccupancy (int chunkIndex, ByteBuffer out) {
+		ByteBuffer cells = chunkCells[chunkIndex].duplicate();
+		cells.clear();
+		out.put(cells);
+	}
 
-            // Сохраняем цвет в пользовательских данных
-            body.setUserValue(VOXEL_MARKER);
-            VoxelData data = new VoxelData(color, x, y, z);
-            body.setUserPointer(encodeVoxelData(data));
-            // Дополнительно сохраняем изначальные координаты (если нужно)
-            //body.setUserPointer(hashPosition(x, y, z));
+	/** Replaces the voxels of a chunk with ones read from a {@link VoxelSnapshot}. The occupancy is copied right away, so the
+	 * physics and raycasts see the new voxels, while the chunk only decodes its voxels when they are first accessed.
+	 * @param cells the occupancy bitset, null for an empty chunk
+	 * @param voxels see {@link VoxelChunk#read(ByteBuffer)} */
+	void loadChunk (int chunkIndex, ByteBuffer cells, int solid, ByteBuffer voxels) {
+		ByteBuffer target = chunkCells[chunkIndex];
+		target.clear();
+		if (cells != null)
+			target.put(cells);
+		else {
+			while (target.hasRemaining())
+				target.put((byte)0);
+		}
+		target.clear();
+		solidVoxels[chunkIndex] = solid;
+		chunks[chunkIndex].read(voxels);
+		markDirty(chunkIndex, true);
+	}
 
-            body.setRestitution(0.3f);
-            body.setFriction(0.7f);
-            body.setActivationState(Collision.DISABLE_DEACTIVATION);
+	/** Replaces the voxels of a chunk with a copy of another chunk's and rebuilds its occupancy, see {@link VoxelRegionStore}.
+	 * @param source null empties the chunk */
+	void setChunk (int chunkIndex, VoxelChunk source) {
+		VoxelChunk chunk = chunks[chunkIndex];
+		if (source != null)
+			chunk.set(source);
+		else
+			chunk.read(null);
+		chunk.faceVisibility = -1L;
+		ByteBuffer cells = chunkCells[chunkIndex];
+		int solid = 0, bits = 0, cell = 0;
+		for (int y = 0; y < CHUNK_SIZE_Y; y++) {
+			for (int z = 0; z < CHUNK_SIZE_Z; z++) {
+				for (int x = 0; x < CHUNK_SIZE_X; x++, cell++) {
+					if (source != null && chunk.getFast(x, y, z) != 0) {
+						bits |= 1 << (cell & 7);
+						solid++;
+					}
+					if ((cell & 7) == 7) {
+						cells.put(cell >> 3, (byte)bits);
+						bits = 0;
+					}
+				}
+			}
+		}
+		solidVoxels[chunkIndex] = solid;
+		markDirty(chunkIndex, true);
+	}
 
-            addBody(body, VOXEL_GROUP, (PROJECTILE_MASK));
-        }
-        // Обновляем чанк (если используете чанковую систему)
-        updateChunkAt(x, y, z);
-    }
+	/** Finds the first solid voxel along a ray with an exact grid traversal (Amanatides and Woo), chunks without solid voxels are
+	 * crossed in a single step. Only reads the occupancy and allocates nothing, so it can be called from any thread, edits made
+	 * meanwhile may or may not be seen.
+	 * @param direction the direction of the ray, doesn't have to be normalized
+	 * @param maxDistance the length of the ray in world units
+	 * @param hit receives the voxel, may be null
+	 * @return whether a solid voxel was hit */
+	public boolean raycast (Vector3 origin, Vector3 direction, float maxDistance, VoxelRayHit hit) {
+		return occupancy.raycast(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, maxDistance, hit) >= 0;
+	}
 
+	/** Casts rays {@code start} to {@code start + count - 1} of a batch, see
+	 * {@link #raycast(Vector3, Vector3, float, VoxelRayHit)}. Different ranges of the same batch can be cast from different
+	 * threads.
+	 * @param rays origin and direction of every ray, six floats each
+	 * @param distances receives the distance to the first solid voxel of every ray, -1 for rays that hit nothing
+	 * @return the number of rays of the range that hit a voxel */
+	public int raycast (float[] rays, float[] distances, int start, int count, float maxDistance) {
+		int hits = 0;
+		for (int i = start, n = start + count; i < n; i++) {
+			int ray = i * 6;
+			float distance = occupancy.raycast(rays[ray], rays[ray + 1], rays[ray + 2], rays[ray + 3], rays[ray + 4],
+				rays[ray + 5], maxDistance, null);
+			distances[i] = distance;
+			if (distance >= 0) hits++;
+		}
+		return hits;
+	}
 
-    private void removeVoxelBody(int x, int y, int z) {
-        long key = hashPosition(x, y, z);
-        for (int i = 0; i < physicsBodies.size; i++) {
-            if (physicsBodies.get(i).getUserPointer() == key) {
-                btRigidBody body = physicsBodies.removeIndex(i);
-                dynamicsWorld.removeRigidBody(body);
-                body.dispose();
-                break;
-            }
-        }
-    }
+	/** @return whether no solid voxel lies between the two points, a point inside a solid voxel is never visible */
+	public boolean isVisible (Vector3 from, Vector3 to) {
+		float dx = to.x - from.x, dy = to.y - from.y, dz = to.z - from.z;
+		return occupancy.raycast(from.x, from.y, from.z, dx, dy, dz, (float)Math.sqrt(dx * dx + dy * dy + dz * dz), null) < 0;
+	}
 
-    private long encodeVoxelData(VoxelData data) {
-        return ((long)data.color << 32) |
-            ((long)data.x << 16) |
-            ((long)data.y << 8) |
-            data.z;
-    }
+	static long encodeVoxelData (int color, int x, int y, int z) {
+		return (long)color << 32 | (long)x << 16 | (long)y << 8 | z;
+	}
 
     // Декодируем данные из userPointer
     VoxelData decodeVoxelData(long userPointer) {
@@ -336,14 +821,162 @@ public class VoxelWorld implements RenderableProvider {
         return new VoxelData(color, x, y, z);
     }
 
+    private int chunkIndexAt(int x, int y, int z) {
+        return x / CHUNK_SIZE_X + z / CHUNK_SIZE_Z * chunksX + y / CHUNK_SIZE_Y * chunksX * chunksZ;
+    }
+
     private void updateChunkAt(int x, int y, int z) {
         int chunkX = x / CHUNK_SIZE_X;
         int chunkY = y / CHUNK_SIZE_Y;
         int chunkZ = z / CHUNK_SIZE_Z;
-        int chunkIndex = chunkX + chunkZ * chunksX + chunkY * chunksX * chunksZ;
-        dirty[chunkIndex] = true;
+        int chunkIndex = chunkIndexAt(x, y, z);
+        markDirty(chunkIndex, true);
+        // border voxels hide faces of the neighbor chunk
+        int localX = x % CHUNK_SIZE_X, localY = y % CHUNK_SIZE_Y, localZ = z % CHUNK_SIZE_Z;
+        if (localX == 0 && chunkX > 0) markDirty(chunkIndex - 1, false);
+        if (localX == CHUNK_SIZE_X - 1 && chunkX < chunksX - 1) markDirty(chunkIndex + 1, false);
+        if (localZ == 0 && chunkZ > 0) markDirty(chunkIndex - chunksX, false);
+        if (localZ == CHUNK_SIZE_Z - 1 && chunkZ < chunksZ - 1) markDirty(chunkIndex + chunksX, false);
+        if (localY == 0 && chunkY > 0) markDirty(chunkIndex - chunksX * chunksZ, false);
+        if (localY == CHUNK_SIZE_Y - 1 && chunkY < chunksY - 1) markDirty(chunkIndex + chunksX * chunksZ, false);
     }
 
+	/** Marks a chunk for remeshing, during an edit only once the edit is committed.
+	 * @param collision whether the chunk's solid voxels changed */
+	private void markDirty (int chunkIndex, boolean collision) {
+		if (editDepth == 0) {
+			dirty[chunkIndex] = true;
+			if (collision) {
+				synchronized (handoffLock) {
+					collisionDirty[chunkIndex] = true;
+				}
+			}
+			return;
+		}
+		if (!pendingDirty[chunkIndex]) {
+			pendingDirty[chunkIndex] = true;
+			pendingChunks.add(chunkIndex);
+		}
+		if (collision) pendingCollision[chunkIndex] = true;
+	}
+
+	/** Starts a batch of voxel writes. Until the matching {@link #commitEdit()} the touched chunks are neither remeshed nor is
+	 * their collision updated, so every chunk is rebuilt once no matter how many of its voxels change. Edits can be nested, only
+	 * the outermost commit applies them. */
+	public void beginEdit () {
+		editDepth++;
+	}
+
+	/** Ends a batch started with {@link #beginEdit()}. The collision of every touched chunk is updated before the next physics
+	 * step and the chunks are remeshed by the next {@link #getRenderables(Array, Pool)}. */
+	public void commitEdit () {
+		if (editDepth == 0) throw new IllegalStateException("beginEdit must be called before commitEdit.");
+		if (--editDepth > 0) return;
+		synchronized (handoffLock) {
+			for (int i = 0; i < pendingChunks.size; i++) {
+				int chunkIndex = pendingChunks.get(i);
+				dirty[chunkIndex] = true;
+				if (pendingCollision[chunkIndex]) collisionDirty[chunkIndex] = true;
+				pendingDirty[chunkIndex] = false;
+				pendingCollision[chunkIndex] = false;
+			}
+		}
+		pendingChunks.clear();
+	}
+
+	/** Sets all voxels of a box in a single edit, the bounds are inclusive and clamped to the world. */
+	public void fillBox (int x0, int y0, int z0, int x1, int y1, int z1, byte voxelType, int color) {
+		x0 = Math.max(x0, 0);
+		y0 = Math.max(y0, 0);
+		z0 = Math.max(z0, 0);
+		x1 = Math.min(x1, voxelsX - 1);
+		y1 = Math.min(y1, voxelsY - 1);
+		z1 = Math.min(z1, voxelsZ - 1);
+		beginEdit();
+		for (int y = y0; y <= y1; y++)
+			for (int z = z0; z <= z1; z++)
+				for (int x = x0; x <= x1; x++)
+					setVoxelWithColor(x, y, z, voxelType, color);
+		commitEdit();
+	}
+
+	/** Sets all voxels whose centers lie within the sphere in a single edit, type 0 carves the sphere out.
+	 * @param x the center in voxels */
+	public void fillSphere (float x, float y, float z, float radius, byte voxelType, int color) {
+		int x0 = Math.max(MathUtils.floor(x - radius), 0), x1 = Math.min(MathUtils.floor(x + radius), voxelsX - 1);
+		int y0 = Math.max(MathUtils.floor(y - radius), 0), y1 = Math.min(MathUtils.floor(y + radius), voxelsY - 1);
+		int z0 = Math.max(MathUtils.floor(z - radius), 0), z1 = Math.min(MathUtils.floor(z + radius), voxelsZ - 1);
+		float radius2 = radius * radius;
+		beginEdit();
+		for (int vy = y0; vy <= y1; vy++) {
+			float dy = vy + 0.5f - y;
+			for (int vz = z0; vz <= z1; vz++) {
+				float dz = vz + 0.5f - z;
+				for (int vx = x0; vx <= x1; vx++) {
+					float dx = vx + 0.5f - x;
+					if (dx * dx + dy * dy + dz * dz <= radius2) setVoxelWithColor(vx, vy, vz, voxelType, color);
+				}
+			}
+		}
+		commitEdit();
+	}
+
+	/** Copies a box of voxels into the world in a single edit, voxels falling outside the world are skipped.
+	 * @param types the voxel types, index {@code bx + bz * width + by * width * depth}
+	 * @param colors the matching colors or null for color 0 */
+	public void setVoxels (int x, int y, int z, int width, int height, int depth, byte[] types, int[] colors) {
+		beginEdit();
+		for (int by = 0, i = 0; by < height; by++)
+			for (int bz = 0; bz < depth; bz++)
+				for (int bx = 0; bx < width; bx++, i++)
+					setVoxelWithColor(x + bx, y + by, z + bz, types[i], colors != null ? colors[i] : 0);
+		commitEdit();
+	}
+
+	/** Copies the voxel layers of the neighbors touching the chunk into the {@link VoxelChunk#borders} of target, so faces
+	 * between two solid chunks aren't meshed. Faces on the world's boundary stay exposed. */
+	void copyBorders (int index, VoxelChunk target) {
+		target.clearBorders();
+		int cx = index % chunksX, cz = (index / chunksX) % chunksZ, cy = index / (chunksX * chunksZ);
+		int w = CHUNK_SIZE_X, h = CHUNK_SIZE_Y, d = CHUNK_SIZE_Z;
+		if (cy < chunksY - 1) {
+			VoxelChunk neighbor = chunks[index + chunksX * chunksZ];
+			for (int z = 0; z < d; z++)
+				for (int x = 0; x < w; x++)
+					target.borders[0][x + z * w] = neighbor.getFast(x, 0, z);
+		}
+		if (cy > 0) {
+			VoxelChunk neighbor = chunks[index - chunksX * chunksZ];
+			for (int z = 0; z < d; z++)
+				for (int x = 0; x < w; x++)
+					target.borders[1][x + z * w] = neighbor.getFast(x, h - 1, z);
+		}
+		if (cx > 0) {
+			VoxelChunk neighbor = chunks[index - 1];
+			for (int z = 0; z < d; z++)
+				for (int y = 0; y < h; y++)
+					target.borders[2][y + z * h] = neighbor.getFast(w - 1, y, z);
+		}
+		if (cx < chunksX - 1) {
+			VoxelChunk neighbor = chunks[index + 1];
+			for (int z = 0; z < d; z++)
+				for (int y = 0; y < h; y++)
+					target.borders[3][y + z * h] = neighbor.getFast(0, y, z);
+		}
+		if (cz > 0) {
+			VoxelChunk neighbor = chunks[index - chunksX];
+			for (int y = 0; y < h; y++)
+				for (int x = 0; x < w; x++)
+					target.borders[4][x + y * w] = neighbor.getFast(x, y, d - 1);
+		}
+		if (cz < chunksZ - 1) {
+			VoxelChunk neighbor = chunks[index + chunksX];
+			for (int y = 0; y < h; y++)
+				for (int x = 0; x < w; x++)
+					target.borders[5][x + y * w] = neighbor.getFast(x, y, 0);
+		}
+	}
+
     private long hashPosition(int x, int y, int z) {
         // Используем битовые сдвиги для создания уникального хеша из координат
         return ((long)x & 0xFFFF) << 32 | ((long)y & 0xFFFF) << 16 | ((long)z & 0xFFFF);
@@ -367,6 +1000,12 @@ public class VoxelWorld implements RenderableProvider {
 				.get(ix % CHUNK_SIZE_X, iy % CHUNK_SIZE_Y, iz % CHUNK_SIZE_Z);
 	}
 
+	/** @return the 4444 color of the voxel, 0 for empty voxels and coordinates outside the world */
+	public int getColor(int x, int y, int z) {
+		if (x < 0 || x >= voxelsX || y < 0 || y >= voxelsY || z < 0 || z >= voxelsZ) return 0;
+		return chunks[chunkIndexAt(x, y, z)].getColor(x % CHUNK_SIZE_X, y % CHUNK_SIZE_Y, z % CHUNK_SIZE_Z);
+	}
+
 	public float getHighest(float x, float z) {
 		int ix = (int)x;
 		int iz = (int)z;
@@ -383,44 +1022,312 @@ public class VoxelWorld implements RenderableProvider {
 		return 0;
 	}
 
+	/** Gets the transform to draw an object with. Rigid bodies with a motion state are interpolated between the last two
+	 * physics steps, other objects are at their simulated transform. While the physics thread runs, bodies added with
+	 * {@link #addBody(btRigidBody, short, short)} are read from the latest snapshot, other objects and bodies that aren't in it
+	 * yet directly.
+	 * @return out */
+	public Matrix4 getRenderTransform (btCollisionObject object, Matrix4 out) {
+		if (physicsThread != null) {
+			TransformSnapshot snapshot = snapshots[frontSnapshot];
+			int index = snapshot.slots.get(object, -1);
+			if (index >= 0) {
+				System.arraycopy(snapshot.transforms, index * 16, out.val, 0, 16);
+				return out;
+			}
+		}
+		if (object instanceof btRigidBody) {
+			btMotionState motionState = ((btRigidBody)object).getMotionState();
+			if (motionState != null) {
+				motionState.getWorldTransform(out);
+				return out;
+			}
+		}
+		object.getWorldTransform(out);
+		return out;
+	}
+
+	/** Copies the transform {@link #getRenderTransform(btCollisionObject, Matrix4)} gives into 16 floats of an array, straight
+	 * from the snapshot while the physics thread runs. */
+	public void getRenderTransform (btCollisionObject object, float[] out, int offset) {
+		if (physicsThread != null) {
+			TransformSnapshot snapshot = snapshots[frontSnapshot];
+			int index = snapshot.slots.get(object, -1);
+			if (index >= 0) {
+				System.arraycopy(snapshot.transforms, index * 16, out, offset, 16);
+				return;
+			}
+		}
+		getRenderTransform(object, renderTransform);
+		System.arraycopy(renderTransform.val, 0, out, offset, 16);
+	}
+
+	/** @return the activation state of a body, see {@link Collision#ACTIVE_TAG}. While the physics thread runs it's the state in
+	 *         the latest snapshot, bodies that aren't in it yet are active. */
+	int getActivationState (btRigidBody body) {
+		if (physicsThread == null) return body.getActivationState();
+		TransformSnapshot snapshot = snapshots[frontSnapshot];
+		int index = snapshot.slots.get(body, -1);
+		return index >= 0 ? snapshot.states[index] : Collision.ACTIVE_TAG;
+	}
+
+	/** Adds a body to the physics world, while the physics thread runs before its next step. */
     public void addBody(btRigidBody body, short group, short mask) {
-        dynamicsWorld.addRigidBody(body, group, mask);
-        physicsBodies.add(body);
+		PhysicsCommand command = obtainCommand(PhysicsCommand.ADD, body);
+		command.group = group;
+		command.mask = mask;
+		submit(command);
     }
 
+	/** Removes a body added with {@link #addBody(btRigidBody, short, short)} in constant time, while the physics thread runs
+	 * before its next step. The body is not disposed, see {@link #disposeLater(Disposable)}. Bodies that aren't part of the world
+	 * are ignored. */
+	public void removeBody (btRigidBody body) {
+		submit(obtainCommand(PhysicsCommand.REMOVE, body));
+	}
+
+	/** Applies an impulse to the center of mass of a body, while the physics thread runs before its next step. */
+	public void applyImpulse (btRigidBody body, Vector3 impulse) {
+		PhysicsCommand command = obtainCommand(PhysicsCommand.IMPULSE, body);
+		command.vector.set(impulse);
+		submit(command);
+	}
+
+	/** Puts a body at rest at a position and wakes it up, while the physics thread runs before its next step. */
+	void placeBody (btRigidBody body, float x, float y, float z) {
+		PhysicsCommand command = obtainCommand(PhysicsCommand.PLACE, body);
+		command.vector.set(x, y, z);
+		submit(command);
+	}
+
+	/** Disposes an object the physics world may still use once the changes made before are applied, right away without the
+	 * physics thread. */
+	public void disposeLater (Disposable disposable) {
+		PhysicsCommand command = obtainCommand(PhysicsCommand.DISPOSE, null);
+		command.disposable = disposable;
+		submit(command);
+	}
+
+	private PhysicsCommand obtainCommand (int type, btRigidBody body) {
+		PhysicsCommand command;
+		synchronized (handoffLock) {
+			command = commandPool.obtain();
+		}
+		command.type = type;
+		command.body = body;
+		return command;
+	}
+
+	/** Applies the command right away without the physics thread, otherwise queues it for the next step. */
+	private void submit (PhysicsCommand command) {
+		if (physicsThread == null) {
+			apply(command);
+			synchronized (handoffLock) {
+				commandPool.free(command);
+			}
+			return;
+		}
+		synchronized (handoffLock) {
+			commands.add(command);
+		}
+	}
+
+	/** Must be called by the thread that steps, or while no thread does. */
+	private void apply (PhysicsCommand command) {
+		btRigidBody body = command.body;
+		switch (command.type) {
+		case PhysicsCommand.ADD:
+			dynamicsWorld.addRigidBody(body, command.group, command.mask);
+			bodyHandles.put(body, physicsBodies.size);
+			physicsBodies.add(body);
+			if (body.getUserValue() == PROJECTILE_MARKER) {
+				projectileHandles.put(body, projectiles.size);
+				projectiles.add(body);
+			}
+			break;
+		case PhysicsCommand.REMOVE:
+			if (!removeHandle(physicsBodies, bodyHandles, body)) break;
+			removeHandle(projectiles, projectileHandles, body);
+			dynamicsWorld.removeRigidBody(body);
+			break;
+		case PhysicsCommand.PLACE:
+			physicsTransform.setToTranslation(command.vector);
+			btMotionState motionState = body.getMotionState();
+			if (motionState != null) motionState.setWorldTransform(physicsTransform);
+			body.setWorldTransform(physicsTransform);
+			body.setInterpolationWorldTransform(physicsTransform);
+			body.setLinearVelocity(Vector3.Zero);
+			body.setAngularVelocity(Vector3.Zero);
+			body.setInterpolationLinearVelocity(Vector3.Zero);
+			body.setInterpolationAngularVelocity(Vector3.Zero);
+			body.clearForces();
+			body.forceActivationState(Collision.ACTIVE_TAG);
+			body.setDeactivationTime(0);
+			break;
+		case PhysicsCommand.IMPULSE:
+			body.applyCentralImpulse(command.vector);
+			break;
+		case PhysicsCommand.DISPOSE:
+			command.disposable.dispose();
+			break;
+		}
+	}
+
+	private static boolean removeHandle (Array<btRigidBody> bodies, ObjectIntMap<btRigidBody> handles, btRigidBody body) {
+		int handle = handles.remove(body, -1);
+		if (handle == -1) return false;
+		btRigidBody last = bodies.pop();
+		if (handle < bodies.size) {
+			bodies.set(handle, last);
+			handles.put(last, handle);
+		}
+		return true;
+	}
+
 	@Override
 	public void getRenderables(Array<Renderable> renderables, Pool<Renderable> pool) {
 		renderedChunks = 0;
+		updateVisibility();
+		mesher.update();
 
+		// world space vertices of chunks whose ranges touch in the arena are drawn with one call
+		boolean merge = vertexFormat == VoxelVertexFormat.Full;
+		Renderable last = null;
+		int lastEnd = 0;
 		for (int i = 0; i < numChunks; i++) {
 			VoxelChunk chunk = chunks[i];
-			Mesh mesh = meshes[i];
-
-			if (dirty[i]) {
-				int numVerts = chunk.calculateVertices(vertices, voxelColors);
-				numVertices[i] = numVerts / 4 * 6;
-				mesh.setVertices(vertices, 0, numVerts * 7);
-
-				dirty[i] = false;
-			}
 
-			if (numVertices[i] > 0) {
+			if (visible[i] && numVertices[i] > 0) {
+				Mesh mesh = arena.getMesh(rangeAddress[i]);
+				int offset = arena.getIndexOffset(rangeAddress[i]);
+				renderedChunks++;
+				if (merge && last != null && last.meshPart.mesh == mesh && lastEnd == offset) {
+					last.meshPart.size = offset + numVertices[i] - last.meshPart.offset;
+					lastEnd = offset + rangeVertices[i] / 4 * 6;
+					continue;
+				}
 				Renderable renderable = pool.obtain();
 				renderable.material = materials[i];
+				if (vertexFormat == VoxelVertexFormat.Compact)
+					renderable.worldTransform.setToTranslation(chunk.offset);
+				else
+					renderable.worldTransform.idt();
 				renderable.meshPart.mesh = mesh;
-				renderable.meshPart.offset = 0;
+				renderable.meshPart.offset = offset;
 				renderable.meshPart.size = numVertices[i];
 				renderable.meshPart.primitiveType = GL20.GL_TRIANGLES;
 				renderables.add(renderable);
-				renderedChunks++;
+				last = renderable;
+				lastEnd = offset + rangeVertices[i] / 4 * 6;
 			}
 		}
 	}
 
+	/** Tests the chunks against the camera frustum, a group of {@link #CULL_GROUP_SIZE}^3 chunks at a time. */
+	private void updateVisibility () {
+		if (camera == null) {
+			for (int i = 0; i < numChunks; i++)
+				visible[i] = true;
+			return;
+		}
+		Frustum frustum = camera.frustum;
+		for (int gy = 0, g = 0; gy < groupsY; gy++) {
+			for (int gz = 0; gz < groupsZ; gz++) {
+				for (int gx = 0; gx < groupsX; gx++, g++) {
+					boolean groupVisible = frustum.boundsInFrustum(groupBounds[g]);
+					for (int y = gy * CULL_GROUP_SIZE; y < Math.min(chunksY, (gy + 1) * CULL_GROUP_SIZE); y++) {
+						for (int z = gz * CULL_GROUP_SIZE; z < Math.min(chunksZ, (gz + 1) * CULL_GROUP_SIZE); z++) {
+							for (int x = gx * CULL_GROUP_SIZE; x < Math.min(chunksX, (gx + 1) * CULL_GROUP_SIZE); x++) {
+								int i = x + z * chunksX + y * chunksX * chunksZ;
+								visible[i] = groupVisible && frustum.boundsInFrustum(chunks[i].bounds);
+							}
+						}
+					}
+				}
+			}
+		}
+		if (occlusionCulling) cullOccluded();
+	}
+
+	/** Breadth first traversal from the camera chunk through the faces each chunk connects, never stepping back towards the
+	 * camera. Chunks in the frustum that the traversal doesn't reach are hidden behind solid voxels. */
+	private void cullOccluded () {
+		for (int i = 0; i < numChunks; i++)
+			reached[i] = false;
+		int head = 0, tail = 0;
+		int cx = MathUtils.floor(camera.position.x / (CHUNK_SIZE_X * WORLD_SCALE));
+		int cy = MathUtils.floor(camera.position.y / (CHUNK_SIZE_Y * WORLD_SCALE));
+		int cz = MathUtils.floor(camera.position.z / (CHUNK_SIZE_Z * WORLD_SCALE));
+		if (cx >= 0 && cx < chunksX && cy >= 0 && cy < chunksY && cz >= 0 && cz < chunksZ) {
+			int i = cx + cz * chunksX + cy * chunksX * chunksZ;
+			reached[i] = true;
+			entryFace[i] = -1;
+			travelled[i] = 0;
+			traversalQueue[tail++] = i;
+		} else {
+			// enter the world through the boundary faces that look at the camera
+			for (int y = 0; y < chunksY; y++) {
+				for (int z = 0; z < chunksZ; z++) {
+					for (int x = 0; x < chunksX; x++) {
+						int face = cy >= chunksY && y == chunksY - 1 ? 0 : cy < 0 && y == 0 ? 1 : cx < 0 && x == 0 ? 2
+							: cx >= chunksX && x == chunksX - 1 ? 3 : cz < 0 && z == 0 ? 4 : cz >= chunksZ && z == chunksZ - 1 ? 5 : -1;
+						int i = x + z * chunksX + y * chunksX * chunksZ;
+						if (face == -1 || !visible[i]) continue;
+						reached[i] = true;
+						entryFace[i] = face;
+						travelled[i] = 1 << (face ^ 1);
+						traversalQueue[tail++] = i;
+					}
+				}
+			}
+		}
+
+		while (head < tail) {
+			int i = traversalQueue[head++];
+			int x = i % chunksX, z = (i / chunksX) % chunksZ, y = i / (chunksX * chunksZ);
+			long faceVisibility = chunks[i].faceVisibility;
+			for (int face = 0; face < 6; face++) {
+				// faces come in opposite pairs, face ^ 1 is the way back
+				if ((travelled[i] & (1 << (face ^ 1))) != 0) continue;
+				if (entryFace[i] != -1 && !VoxelChunk.isConnected(faceVisibility, entryFace[i], face)) continue;
+				int nx = x, ny = y, nz = z;
+				switch (face) {
+				case 0:
+					ny++;
+					break;
+				case 1:
+					ny--;
+					break;
+				case 2:
+					nx--;
+					break;
+				case 3:
+					nx++;
+					break;
+				case 4:
+					nz--;
+					break;
+				default:
+					nz++;
+					break;
+				}
+				if (nx < 0 || nx >= chunksX || ny < 0 || ny >= chunksY || nz < 0 || nz >= chunksZ) continue;
+				int neighbor = nx + nz * chunksX + ny * chunksX * chunksZ;
+				if (reached[neighbor] || !visible[neighbor]) continue;
+				reached[neighbor] = true;
+				entryFace[neighbor] = face ^ 1;
+				travelled[neighbor] = travelled[i] | (1 << face);
+				traversalQueue[tail++] = neighbor;
+			}
+		}
+
+		for (int i = 0; i < numChunks; i++)
+			visible[i] &= reached[i];
+	}
+
     public void breakVoxel(int x, int y, int z, Vector3 impactPoint, float force) {
         if (get(x, y, z) == 0) return;
 
-        System.out.println("Destroying voxel at: " + x + ", " + y + ", " + z);
         setVoxelWithColor(x, y, z, (byte)0, 0); // Удаляем воксель
 
         // Опционально: создаем эффект разрушения (частицы, звук)
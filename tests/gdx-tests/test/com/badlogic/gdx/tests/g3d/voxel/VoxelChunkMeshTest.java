@@ -0,0 +1,109 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.utils.NumberUtils;
+
+/** Compares the quads of {@link VoxelChunk#calculateVerticesGreedy(VoxelVertexFormat, float[])} with the single voxel faces of
+ * {@link VoxelChunk#calculateVertices(VoxelVertexFormat, float[])}: both have to cover the same faces with the same colors. */
+public class VoxelChunkMeshTest {
+	static final int SIZE = 16;
+	/** Grid of the face cells, one more than the voxels since the faces of the last voxels lie on the far planes. */
+	static final int GRID = SIZE + 1;
+
+	final float[] vertices = new float[SIZE * SIZE * SIZE * 6 * 4 * VoxelVertexFormat.Compact.vertexSize];
+
+	@Test
+	public void solidChunk () {
+		VoxelChunk chunk = new VoxelChunk(SIZE, SIZE, SIZE);
+		for (int y = 0; y < SIZE; y++)
+			for (int z = 0; z < SIZE; z++)
+				for (int x = 0; x < SIZE; x++)
+					chunk.set(x, y, z, (byte)1, 0xF00F);
+		assertEquals(6 * SIZE * SIZE * 4, chunk.calculateVertices(VoxelVertexFormat.Compact, vertices));
+		assertEquals(6 * 4, chunk.calculateVerticesGreedy(VoxelVertexFormat.Compact, vertices));
+		compare(chunk);
+
+		// solid borders hide the faces on the sides of the chunk
+		for (byte[] border : chunk.borders)
+			Arrays.fill(border, (byte)1);
+		assertEquals(0, chunk.calculateVertices(VoxelVertexFormat.Compact, vertices));
+		assertEquals(0, chunk.calculateVerticesGreedy(VoxelVertexFormat.Compact, vertices));
+	}
+
+	@Test
+	public void randomChunks () {
+		Random random = new Random(6);
+		for (int n = 0; n < 40; n++) {
+			VoxelChunk chunk = new VoxelChunk(SIZE, SIZE, SIZE);
+			// sparse and dense chunks, with few colors so that faces merge
+			float density = random.nextFloat();
+			int numColors = 1 + random.nextInt(4);
+			for (int y = 0; y < SIZE; y++)
+				for (int z = 0; z < SIZE; z++)
+					for (int x = 0; x < SIZE; x++)
+						if (random.nextFloat() < density) chunk.set(x, y, z, (byte)1, (1 + random.nextInt(numColors)) * 0x1111);
+			if (n % 2 == 1) {
+				for (byte[] border : chunk.borders)
+					for (int i = 0; i < border.length; i++)
+						border[i] = (byte)(random.nextBoolean() ? 1 : 0);
+			}
+			compare(chunk);
+		}
+	}
+
+	/** Fails if the meshers don't cover the same face cells with the same colors, or the greedy mesher needs more quads. */
+	private void compare (VoxelChunk chunk) {
+		int faces = chunk.calculateVertices(VoxelVertexFormat.Compact, vertices) / 4;
+		int[] expected = rasterize(vertices, faces);
+		int quads = chunk.calculateVerticesGreedy(VoxelVertexFormat.Compact, vertices) / 4;
+		int[] actual = rasterize(vertices, quads);
+		assertTrue(quads + " quads for " + faces + " faces", quads <= faces);
+		assertArrayEquals(expected, actual);
+	}
+
+	/** @return the packed color of every face cell, by face direction and position, 0 for cells without a face */
+	private static int[] rasterize (float[] vertices, int quads) {
+		int[] cells = new int[6 * GRID * GRID * GRID];
+		int[] min = new int[3], max = new int[3];
+		int vertexSize = VoxelVertexFormat.Compact.vertexSize;
+		for (int q = 0; q < quads; q++) {
+			Arrays.fill(min, Integer.MAX_VALUE);
+			Arrays.fill(max, Integer.MIN_VALUE);
+			int face = 0, color = 0;
+			for (int v = 0; v < 4; v++) {
+				int offset = (q * 4 + v) * vertexSize;
+				int position = NumberUtils.floatToRawIntBits(vertices[offset]);
+				for (int axis = 0; axis < 3; axis++) {
+					int coordinate = position >> axis * 8 & 0xFF;
+					min[axis] = Math.min(min[axis], coordinate);
+					max[axis] = Math.max(max[axis], coordinate);
+				}
+				face = position >>> 24;
+				color = NumberUtils.floatToRawIntBits(vertices[offset + 1]);
+			}
+			// the quad is flat, the axis it faces along has no extent
+			int flat = face < 2 ? 1 : face < 4 ? 0 : 2;
+			assertEquals(min[flat], max[flat]);
+			max[flat]++;
+			for (int y = min[1]; y < max[1]; y++) {
+				for (int z = min[2]; z < max[2]; z++) {
+					for (int x = min[0]; x < max[0]; x++) {
+						int cell = ((face * GRID + y) * GRID + z) * GRID + x;
+						if (cells[cell] != 0) fail("face " + face + " at " + x + ", " + y + ", " + z + " is covered twice");
+						cells[cell] = color;
+					}
+				}
+			}
+		}
+		return cells;
+	}
+}
@@ -0,0 +1,183 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class VoxelChunkTest {
+	static final int SIZE = 16;
+
+	@Test
+	public void paletteGrows () {
+		VoxelChunk chunk = new VoxelChunk(SIZE, SIZE, SIZE);
+		byte[] types = new byte[chunk.numVoxels];
+		int[] colors = new int[chunk.numVoxels];
+		assertEquals(1, chunk.getPaletteSize());
+		assertEquals(1, chunk.getIndexBits());
+		// every voxel gets a new color, the indices widen whenever the palette outgrows them
+		for (int i = 0; i < 1000; i++) {
+			set(chunk, types, colors, i, (byte)(1 + i % 3), i);
+			int paletteSize = i + 2;
+			assertEquals(paletteSize, chunk.getPaletteSize());
+			int bits = paletteSize <= 2 ? 1 : paletteSize <= 4 ? 2 : paletteSize <= 16 ? 4 : paletteSize <= 256 ? 8 : 16;
+			assertEquals("palette size " + paletteSize, bits, chunk.getIndexBits());
+			if (Integer.bitCount(paletteSize) == 1 || paletteSize == 1001) check(chunk, types, colors);
+		}
+		assertEquals(chunk.numVoxels * 16 / 8 + 1024 * 4, chunk.getMemoryUsage());
+	}
+
+	@Test
+	public void paletteCompacts () {
+		VoxelChunk chunk = new VoxelChunk(SIZE, SIZE, SIZE);
+		byte[] types = new byte[chunk.numVoxels];
+		int[] colors = new int[chunk.numVoxels];
+		for (int i = 0; i < 3; i++)
+			set(chunk, types, colors, i * 100, (byte)1, i + 1);
+		assertEquals(4, chunk.getPaletteSize());
+		assertEquals(2, chunk.getIndexBits());
+		// the unused entries make room for new colors before the indices widen
+		set(chunk, types, colors, 0, (byte)0, 0);
+		set(chunk, types, colors, 100, (byte)2, 3);
+		set(chunk, types, colors, 300, (byte)1, 10);
+		assertEquals(2, chunk.getIndexBits());
+		assertEquals(4, chunk.getPaletteSize());
+		check(chunk, types, colors);
+
+		// repainting the whole chunk over and over reuses the entries of the old coats, the indices don't widen anymore
+		int bits = 0;
+		for (int color = 100; color < 200; color++) {
+			for (int i = 0; i < chunk.numVoxels; i++)
+				set(chunk, types, colors, i, (byte)1, color);
+			if (color == 100)
+				bits = chunk.getIndexBits();
+			else
+				assertEquals(bits, chunk.getIndexBits());
+		}
+		check(chunk, types, colors);
+	}
+
+	@Test
+	public void emptyVoxelsDropTheirColor () {
+		VoxelChunk chunk = new VoxelChunk(SIZE, SIZE, SIZE);
+		chunk.set(1, 2, 3, (byte)0, 0xFFFF);
+		assertEquals(0, chunk.getColor(1, 2, 3));
+		assertEquals(1, chunk.getPaletteSize());
+		chunk.set(1, 2, 3, (byte)4, 0xFFFF);
+		assertEquals(4, chunk.get(1, 2, 3));
+		assertEquals(0xFFFF, chunk.getColor(1, 2, 3));
+		assertEquals(0, chunk.get(SIZE, 2, 3));
+		assertEquals(0, chunk.getColor(-1, 2, 3));
+	}
+
+	@Test
+	public void randomEdits () {
+		Random random = new Random(5);
+		VoxelChunk chunk = new VoxelChunk(SIZE, SIZE, SIZE);
+		byte[] types = new byte[chunk.numVoxels];
+		int[] colors = new int[chunk.numVoxels];
+		// rounds of few and of many colors, so the palette compacts and the indices widen repeatedly
+		for (int round = 0; round < 8; round++) {
+			int numColors = round % 2 == 0 ? 3 : 1 << (4 + round);
+			for (int i = 0; i < 20000; i++) {
+				int voxel = random.nextInt(chunk.numVoxels);
+				byte type = (byte)random.nextInt(4);
+				set(chunk, types, colors, voxel, type, random.nextInt(numColors));
+			}
+			check(chunk, types, colors);
+			assertTrue(chunk.getPaletteSize() <= 1 << chunk.getIndexBits());
+		}
+	}
+
+	@Test
+	public void packedRoundTrip () {
+		Random random = new Random(7);
+		for (int numColors : new int[] {1, 3, 12, 200, 3000}) {
+			VoxelChunk chunk = new VoxelChunk(SIZE, SIZE, SIZE);
+			byte[] types = new byte[chunk.numVoxels];
+			int[] colors = new int[chunk.numVoxels];
+			for (int i = 0; i < chunk.numVoxels; i++)
+				if (random.nextBoolean()) set(chunk, types, colors, i, (byte)(1 + random.nextInt(3)), random.nextInt(numColors));
+			int size = chunk.getPackedSize();
+			ByteBuffer buffer = ByteBuffer.allocate(size + 16);
+			buffer.position(16);
+			chunk.write(buffer);
+			assertEquals(size + 16, buffer.position());
+			assertTrue(VoxelChunk.isValidPacked(buffer, 16, size, chunk.numVoxels));
+
+			buffer.position(16);
+			ByteBuffer packed = buffer.slice();
+			VoxelChunk copy = new VoxelChunk(SIZE, SIZE, SIZE);
+			copy.set(1, 1, 1, (byte)9, 9);
+			copy.read(packed);
+			// written again before it was decoded, the bytes don't change
+			ByteBuffer rewritten = ByteBuffer.allocate(size);
+			copy.write(rewritten);
+			assertArrayEquals(Arrays.copyOfRange(buffer.array(), 16, 16 + size), rewritten.array());
+			check(copy, types, colors);
+			assertEquals(chunk.getPaletteSize(), copy.getPaletteSize());
+			assertEquals(chunk.getIndexBits(), copy.getIndexBits());
+
+			copy.read(null);
+			check(copy, new byte[chunk.numVoxels], new int[chunk.numVoxels]);
+			assertEquals(1, copy.getPaletteSize());
+		}
+	}
+
+	@Test
+	public void packedRejectsCorruptRecords () {
+		VoxelChunk chunk = new VoxelChunk(SIZE, SIZE, SIZE);
+		for (int i = 0; i < 10; i++)
+			chunk.set(i, 0, 0, (byte)1, i);
+		int size = chunk.getPackedSize();
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		chunk.write(buffer);
+		assertTrue(VoxelChunk.isValidPacked(buffer, 0, size, chunk.numVoxels));
+		assertFalse(VoxelChunk.isValidPacked(buffer, 0, size - 4, chunk.numVoxels));
+		assertFalse(VoxelChunk.isValidPacked(buffer, 0, size, chunk.numVoxels * 2));
+		assertFalse(VoxelChunk.isValidPacked(buffer, 4, size, chunk.numVoxels));
+		assertFalse(VoxelChunk.isValidPacked(buffer, -4, size, chunk.numVoxels));
+		assertFalse(VoxelChunk.isValidPacked(buffer, 0, 4, chunk.numVoxels));
+
+		int paletteSize = buffer.getInt(0), indexBits = buffer.getInt(4);
+		for (int bits : new int[] {0, 3, 32, -16}) {
+			buffer.putInt(4, bits);
+			assertFalse("index bits " + bits, VoxelChunk.isValidPacked(buffer, 0, size, chunk.numVoxels));
+		}
+		buffer.putInt(4, indexBits);
+		for (int entries : new int[] {0, -1, (1 << indexBits) + 1}) {
+			buffer.putInt(0, entries);
+			assertFalse("palette size " + entries, VoxelChunk.isValidPacked(buffer, 0, size, chunk.numVoxels));
+		}
+		buffer.putInt(0, paletteSize);
+		assertTrue(VoxelChunk.isValidPacked(buffer, 0, size, chunk.numVoxels));
+
+		// an index past the palette, in the last long of the indices
+		int last = 8 + ((chunk.numVoxels * indexBits + 63) / 64 - 1) * 8;
+		long indices = buffer.getLong(last);
+		buffer.putLong(last, indices | (long)paletteSize << 64 - indexBits);
+		assertFalse(VoxelChunk.isValidPacked(buffer, 0, size, chunk.numVoxels));
+		buffer.putLong(last, indices);
+		assertTrue(VoxelChunk.isValidPacked(buffer, 0, size, chunk.numVoxels));
+	}
+
+	static void set (VoxelChunk chunk, byte[] types, int[] colors, int voxel, byte type, int color) {
+		chunk.set(voxel % SIZE, voxel / (SIZE * SIZE), voxel / SIZE % SIZE, type, color);
+		types[voxel] = type;
+		colors[voxel] = type != 0 ? color : 0;
+	}
+
+	static void check (VoxelChunk chunk, byte[] types, int[] colors) {
+		for (int i = 0; i < chunk.numVoxels; i++) {
+			int x = i % SIZE, y = i / (SIZE * SIZE), z = i / SIZE % SIZE;
+			assertEquals("type of voxel " + i, types[i], chunk.get(x, y, z));
+			assertEquals("color of voxel " + i, colors[i], chunk.getColor(x, y, z));
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import static com.badlogic.gdx.tests.g3d.voxel.VoxelWorld.CHUNK_SIZE_X;
+import static com.badlogic.gdx.tests.g3d.voxel.VoxelWorld.CHUNK_SIZE_Y;
+import static com.badlogic.gdx.tests.g3d.voxel.VoxelWorld.CHUNK_SIZE_Z;
+import static com.badlogic.gdx.tests.g3d.voxel.VoxelWorld.WORLD_SCALE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+/** Compares the grid traversal of {@link VoxelOccupancy#raycast} with a brute force intersection of the ray and every solid
+ * voxel. */
+public class VoxelOccupancyTest {
+	static final float EPSILON = 1e-3f;
+
+	@Test
+	public void isSolid () {
+		Random random = new Random(1);
+		VoxelOccupancy occupancy = createOccupancy(2, 1, 2, random, 0.3f);
+		int solid = 0;
+		for (int y = 0; y < occupancy.voxelsY; y++)
+			for (int z = 0; z < occupancy.voxelsZ; z++)
+				for (int x = 0; x < occupancy.voxelsX; x++)
+					if (occupancy.isSolid(x, y, z)) solid++;
+		int expected = 0;
+		for (int count : occupancy.solidVoxels)
+			expected += count;
+		assertEquals(expected, solid);
+		assertFalse(occupancy.isSolid(-1, 0, 0));
+		assertFalse(occupancy.isSolid(0, occupancy.voxelsY, 0));
+		assertFalse(occupancy.isSolid(0, 0, occupancy.voxelsZ));
+	}
+
+	@Test
+	public void emptyWorld () {
+		VoxelOccupancy occupancy = createOccupancy(2, 2, 2, new Random(2), 0);
+		assertEquals(-1, occupancy.raycast(1, 1, 1, 1, 1, 1, 1000, null), 0);
+		assertEquals(-1, occupancy.raycast(-5, 3, 3, 1, 0, 0, 1000, null), 0);
+	}
+
+	@Test
+	public void axisAligned () {
+		VoxelOccupancy occupancy = createOccupancy(2, 1, 1, new Random(3), 0);
+		set(occupancy, 20, 3, 4);
+		VoxelRayHit hit = new VoxelRayHit();
+		float distance = occupancy.raycast(0.5f * WORLD_SCALE, 3.5f * WORLD_SCALE, 4.5f * WORLD_SCALE, 1, 0, 0, 100, hit);
+		assertEquals(19.5f * WORLD_SCALE, distance, EPSILON);
+		assertEquals(20, hit.x);
+		assertEquals(3, hit.y);
+		assertEquals(4, hit.z);
+		assertEquals(2, hit.face);
+		assertEquals(-1, hit.normal.x, 0);
+		assertEquals(-1, occupancy.raycast(0.5f * WORLD_SCALE, 3.5f * WORLD_SCALE, 4.5f * WORLD_SCALE, 1, 0, 0,
+			19 * WORLD_SCALE, null), 0);
+	}
+
+	@Test
+	public void randomRays () {
+		Random random = new Random(4);
+		VoxelOccupancy occupancy = createOccupancy(3, 2, 3, random, 0.04f);
+		int[] solid = solidVoxels(occupancy);
+		VoxelRayHit hit = new VoxelRayHit();
+		int hits = 0;
+		for (int i = 0; i < 20000; i++) {
+			// origins inside and around the world, some directions along the axes or planes of the grid
+			float ox = (random.nextFloat() * (occupancy.voxelsX + 16) - 8) * WORLD_SCALE;
+			float oy = (random.nextFloat() * (occupancy.voxelsY + 16) - 8) * WORLD_SCALE;
+			float oz = (random.nextFloat() * (occupancy.voxelsZ + 16) - 8) * WORLD_SCALE;
+			float dx = random.nextInt(5) == 0 ? 0 : (float)random.nextGaussian();
+			float dy = random.nextInt(5) == 0 ? 0 : (float)random.nextGaussian();
+			float dz = random.nextInt(5) == 0 ? 0 : (float)random.nextGaussian();
+			if (dx == 0 && dy == 0 && dz == 0) dx = 1;
+			float maxDistance = random.nextFloat() * 100 * WORLD_SCALE;
+			float distance = occupancy.raycast(ox, oy, oz, dx, dy, dz, maxDistance, hit);
+			if (distance >= 0) hits++;
+			check(solid, ox, oy, oz, dx, dy, dz, maxDistance, distance, hit);
+		}
+		assertTrue("only " + hits + " rays hit a voxel", hits > 2000);
+	}
+
+	/** Intersects the ray with the box of every solid voxel. Rays that only graze a voxel or reach it at their end may or may not
+	 * count as hits, the traversal has to agree with the certain hits and may only report the uncertain ones. */
+	private static void check (int[] solid, float ox, float oy, float oz, float dx, float dy, float dz, float maxDistance,
+		float distance, VoxelRayHit hit) {
+		float length = (float)Math.sqrt(dx * dx + dy * dy + dz * dz);
+		double x = ox / WORLD_SCALE, y = oy / WORLD_SCALE, z = oz / WORLD_SCALE;
+		double nx = dx / length, ny = dy / length, nz = dz / length, end = maxDistance / WORLD_SCALE;
+		double certain = Double.POSITIVE_INFINITY, possible = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < solid.length; i += 3) {
+			double[] interval = intersect(x, y, z, nx, ny, nz, solid[i], solid[i + 1], solid[i + 2]);
+			if (interval == null) continue;
+			if (interval[1] - interval[0] > EPSILON && interval[0] < end - EPSILON) certain = Math.min(certain, interval[0]);
+			if (interval[1] - interval[0] >= -EPSILON && interval[0] <= end + EPSILON) possible = Math.min(possible, interval[0]);
+		}
+		String ray = "ray " + ox + ", " + oy + ", " + oz + " -> " + dx + ", " + dy + ", " + dz + " max " + maxDistance;
+		if (distance < 0) {
+			assertTrue(ray + " missed a voxel at " + certain, certain == Double.POSITIVE_INFINITY);
+			return;
+		}
+		double t = distance / WORLD_SCALE;
+		assertTrue(ray + " hit at " + t + " before " + possible, t >= possible - EPSILON);
+		assertTrue(ray + " hit at " + t + " after " + certain, t <= certain + EPSILON);
+		assertEquals(distance, hit.distance, 0);
+		double[] interval = intersect(x, y, z, nx, ny, nz, hit.x, hit.y, hit.z);
+		assertTrue(ray + " reported a voxel it doesn't cross", interval != null && interval[1] - interval[0] >= -EPSILON);
+		assertEquals(ray, interval[0], t, EPSILON);
+		boolean solidVoxel = false;
+		for (int i = 0; i < solid.length && !solidVoxel; i += 3)
+			solidVoxel = solid[i] == hit.x && solid[i + 1] == hit.y && solid[i + 2] == hit.z;
+		assertTrue(ray + " reported an empty voxel", solidVoxel);
+	}
+
+	/** @return the distances along the normalized ray where it enters and leaves the voxel, the entry clamped to 0, or null if
+	 *         the ray passes it */
+	private static double[] intersect (double x, double y, double z, double dx, double dy, double dz, int vx, int vy, int vz) {
+		double near = 0, far = Double.POSITIVE_INFINITY;
+		double[] origin = {x, y, z}, direction = {dx, dy, dz};
+		int[] min = {vx, vy, vz};
+		for (int axis = 0; axis < 3; axis++) {
+			if (direction[axis] == 0) {
+				if (origin[axis] < min[axis] || origin[axis] > min[axis] + 1) return null;
+				continue;
+			}
+			double t0 = (min[axis] - origin[axis]) / direction[axis], t1 = (min[axis] + 1 - origin[axis]) / direction[axis];
+			near = Math.max(near, Math.min(t0, t1));
+			far = Math.min(far, Math.max(t0, t1));
+		}
+		return far < 0 ? null : new double[] {near, far};
+	}
+
+	/** Fills every other chunk randomly, so rays also cross empty chunks. */
+	private static VoxelOccupancy createOccupancy (int chunksX, int chunksY, int chunksZ, Random random, float density) {
+		VoxelOccupancy occupancy = new VoxelOccupancy(chunksX, chunksY, chunksZ);
+		for (int i = 0; i < occupancy.cells.length; i++)
+			occupancy.cells[i] = ByteBuffer.allocate(CHUNK_SIZE_X * CHUNK_SIZE_Y * CHUNK_SIZE_Z / 8);
+		for (int y = 0; y < occupancy.voxelsY; y++) {
+			for (int z = 0; z < occupancy.voxelsZ; z++) {
+				for (int x = 0; x < occupancy.voxelsX; x++) {
+					int chunk = x / CHUNK_SIZE_X + z / CHUNK_SIZE_Z * chunksX + y / CHUNK_SIZE_Y * chunksX * chunksZ;
+					if (chunk % 2 == 0 && random.nextFloat() < density) set(occupancy, x, y, z);
+				}
+			}
+		}
+		return occupancy;
+	}
+
+	private static void set (VoxelOccupancy occupancy, int x, int y, int z) {
+		int chunksX = occupancy.chunksX, chunksZ = occupancy.chunksZ;
+		int chunk = x / CHUNK_SIZE_X + z / CHUNK_SIZE_Z * chunksX + y / CHUNK_SIZE_Y * chunksX * chunksZ;
+		int cell = x % CHUNK_SIZE_X + z % CHUNK_SIZE_Z * CHUNK_SIZE_X + y % CHUNK_SIZE_Y * CHUNK_SIZE_X * CHUNK_SIZE_Z;
+		ByteBuffer cells = occupancy.cells[chunk];
+		cells.put(cell >> 3, (byte)(cells.get(cell >> 3) | 1 << (cell & 7)));
+		occupancy.solidVoxels[chunk]++;
+	}
+
+	/** @return the coordinates of the solid voxels, three ints each */
+	private static int[] solidVoxels (VoxelOccupancy occupancy) {
+		int count = 0;
+		for (int solid : occupancy.solidVoxels)
+			count += solid;
+		int[] voxels = new int[count * 3];
+		for (int y = 0, i = 0; y < occupancy.voxelsY; y++) {
+			for (int z = 0; z < occupancy.voxelsZ; z++) {
+				for (int x = 0; x < occupancy.voxelsX; x++) {
+					if (!occupancy.isSolid(x, y, z)) continue;
+					voxels[i++] = x;
+					voxels[i++] = y;
+					voxels[i++] = z;
+				}
+			}
+		}
+		return voxels;
+	}
+}
@@ -0,0 +1,150 @@
+package com.badlogic.gdx.tests.g3d.voxel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.tests.g3d.voxel.VoxelRegionStore.Region;
+
+public class VoxelRegionStoreTest {
+	private FileHandle directory;
+
+	@Before
+	public void createDirectory () throws IOException {
+		File file = File.createTempFile("voxel-regions", "");
+		file.delete();
+		directory = new FileHandle(file);
+		directory.mkdirs();
+	}
+
+	@After
+	public void deleteDirectory () {
+		directory.deleteDirectory();
+	}
+
+	@Test
+	public void keys () {
+		int[] coordinates = {0, 1, -1, 31, -32, 1000000, -1000000};
+		for (int x : coordinates) {
+			for (int y : coordinates) {
+				for (int z : coordinates) {
+					long key = VoxelRegionStore.key(x, y, z);
+					assertEquals(x, VoxelRegionStore.keyX(key));
+					assertEquals(y, VoxelRegionStore.keyY(key));
+					assertEquals(z, VoxelRegionStore.keyZ(key));
+				}
+			}
+		}
+		assertEquals(-1, VoxelRegionStore.floorDiv(-1, 32));
+		assertEquals(-1, VoxelRegionStore.floorDiv(-32, 32));
+		assertEquals(-2, VoxelRegionStore.floorDiv(-33, 32));
+		assertEquals(1, VoxelRegionStore.floorDiv(32, 32));
+	}
+
+	@Test
+	public void sectorRelocation () throws IOException {
+		int first = VoxelRegionStore.HEADER_SECTORS, sector = VoxelRegionStore.SECTOR_SIZE;
+		FileHandle file = directory.child("region");
+		Region region = new Region(0, file);
+		byte[] a = bytes(100, 1), b = bytes(sector + 88, 2);
+		region.write(5, a);
+		region.write(6, b);
+		assertEquals(first, region.sectors[5]);
+		assertEquals(first + 1, region.sectors[6]);
+		assertEquals(first + 3, region.endSector);
+
+		// a chunk that still fits stays in its sectors, one that outgrows them moves to the end of the file
+		a = bytes(sector, 3);
+		region.write(5, a);
+		assertEquals(first, region.sectors[5]);
+		a = bytes(sector * 2 + 1, 4);
+		region.write(5, a);
+		assertEquals(first + 3, region.sectors[5]);
+		assertEquals(first + 6, region.endSector);
+		region.write(6, null);
+		assertEquals(0, region.lengths[6]);
+		assertArrayEquals(a, read(region, 5));
+		assertNull(region.read(6));
+		region.close();
+
+		region = new Region(0, file);
+		assertEquals(first + 3, region.sectors[5]);
+		assertEquals(a.length, region.lengths[5]);
+		assertEquals(first + 6, region.endSector);
+		assertArrayEquals(a, read(region, 5));
+		assertNull(region.read(6));
+		region.close();
+	}
+
+	@Test(expected = IOException.class)
+	public void notARegion () throws IOException {
+		FileHandle file = directory.child("region");
+		file.writeBytes(new byte[VoxelRegionStore.HEADER_SIZE], false);
+		new Region(0, file);
+	}
+
+	@Test(expected = IOException.class)
+	public void truncatedHeader () throws IOException {
+		FileHandle file = directory.child("region");
+		file.writeBytes(new byte[VoxelRegionStore.SECTOR_SIZE], false);
+		new Region(0, file);
+	}
+
+	@Test
+	public void roundTrip () {
+		Random random = new Random(8);
+		int[] voxels = new int[3000];
+		VoxelRegionStore store = new VoxelRegionStore(directory);
+		// voxels on both sides of the region boundaries at zero and 512
+		for (int i = 0; i < voxels.length; i += 3) {
+			voxels[i] = random.nextInt(1100) - 550;
+			voxels[i + 1] = random.nextInt(64) - 32;
+			voxels[i + 2] = random.nextInt(1100) - 550;
+			store.set(voxels[i], voxels[i + 1], voxels[i + 2], (byte)1, color(voxels, i));
+		}
+		store.dispose();
+
+		store = new VoxelRegionStore(directory);
+		for (int i = 0; i < voxels.length; i += 3) {
+			assertEquals(1, store.get(voxels[i], voxels[i + 1], voxels[i + 2]));
+			assertEquals(color(voxels, i), store.getColor(voxels[i], voxels[i + 1], voxels[i + 2]));
+		}
+		assertEquals(0, store.get(10000, 0, 10000));
+		store.dispose();
+	}
+
+	@Test
+	public void readsCreateNoFiles () {
+		VoxelRegionStore store = new VoxelRegionStore(directory);
+		for (int i = -2; i < 2; i++)
+			assertNull(store.loadChunk(i * VoxelRegionStore.REGION_SIZE, 0, 0));
+		store.update(0, 0, 0);
+		store.flush();
+		store.dispose();
+		assertEquals(0, directory.list().length);
+	}
+
+	/** @return a color that depends on the voxel's position, so voxels written to the same position agree */
+	private static int color (int[] voxels, int i) {
+		return (voxels[i] * 31 + voxels[i + 1] * 17 + voxels[i + 2]) & 0xFFFF;
+	}
+
+	private static byte[] bytes (int length, int seed) {
+		byte[] bytes = new byte[length];
+		new Random(seed).nextBytes(bytes);
+		return bytes;
+	}
+
+	private static byte[] read (Region region, int index) throws IOException {
+		return region.read(index).array();
+	}
+}